@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Records a class-data sharing archive of the classes loaded while the prod
+# profile starts, so later starts map them instead of loading and verifying
+# them again. Needs JDK 13 or later (dynamic AppCDS); the archive only
+# matches the JDK and classpath it was recorded with. CDS only archives
+# classes loaded from jars, so the application classes are jarred again as
+# target/exploded/app.jar.
+#
+#   scripts/cds-archive.sh           # package, explode and record
+#   scripts/run-prod.sh              # start with the archive
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./mvnw -B -q -DskipTests package
+
+jar=$(ls target/library-api-*.jar | grep -v original | head -n 1)
+rm -rf target/exploded
+mkdir -p target/exploded
+(cd target/exploded && jar -xf "../../${jar}")
+jar -cf target/exploded/app.jar -C target/exploded/BOOT-INF/classes .
+
+java -XX:ArchiveClassesAtExit=target/library-api.jsa \
+     -cp "target/exploded/app.jar:target/exploded/BOOT-INF/lib/*" \
+     com.cursoback.libraryapi.LibraryApiApplication \
+     --spring.profiles.active=prod \
+     --application.startup.exit-after-ready=true
+
+echo "Archive written to target/library-api.jsa"
@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Measures time to first request: from launching the JVM until
+# GET /api/books answers 200, for the default profile, the prod profile and
+# the prod profile with the class-data sharing archive. Each variant runs
+# RUNS times (default 5); the medians go to target/startup/startup.csv.
+#
+# Run scripts/cds-archive.sh first to include the archive variant.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+runs=${RUNS:-5}
+port=${PORT:-18080}
+url="http://localhost:${port}/api/books?title=startup&page=0&size=1"
+classpath="target/exploded/app.jar:target/exploded/BOOT-INF/lib/*"
+main=com.cursoback.libraryapi.LibraryApiApplication
+
+if [ ! -d target/exploded ]; then
+  ./mvnw -B -q -DskipTests package
+  jar=$(ls target/library-api-*.jar | grep -v original | head -n 1)
+  mkdir -p target/exploded
+  (cd target/exploded && jar -xf "../../${jar}")
+  jar -cf target/exploded/app.jar -C target/exploded/BOOT-INF/classes .
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Prints the milliseconds until the first successful request.
+time_to_first_request() {
+  local start pid
+  start=$(now_ms)
+  "$@" --server.port="${port}" > target/startup/last-run.log 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "${url}"; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "Application exited, see target/startup/last-run.log" >&2
+      exit 1
+    fi
+    sleep 0.02
+  done
+  echo $(( $(now_ms) - start ))
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+measure() {
+  local name=$1
+  shift
+  local times=()
+  for _ in $(seq "${runs}"); do
+    times+=("$(time_to_first_request "$@")")
+  done
+  local result
+  result=$(printf '%s\n' "${times[@]}" | median)
+  echo "${name},${result}" >> target/startup/startup.csv
+  echo "${name}: ${result} ms (runs: ${times[*]})"
+}
+
+mkdir -p target/startup
+echo "variant,time_to_first_request_ms" > target/startup/startup.csv
+
+measure default java -cp "${classpath}" "${main}"
+measure prod java -cp "${classpath}" "${main}" --spring.profiles.active=prod
+if [ -f target/library-api.jsa ]; then
+  measure prod-cds java -XX:SharedArchiveFile=target/library-api.jsa -cp "${classpath}" "${main}" \
+    --spring.profiles.active=prod
+fi
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Starts the prod profile from the exploded jar, using the class-data sharing
+# archive when scripts/cds-archive.sh has recorded one.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+cds=()
+if [ -f target/library-api.jsa ]; then
+  cds=(-XX:SharedArchiveFile=target/library-api.jsa)
+fi
+
+exec java "${cds[@]}" \
+     -cp "target/exploded/app.jar:target/exploded/BOOT-INF/lib/*" \
+     com.cursoback.libraryapi.LibraryApiApplication \
+     --spring.profiles.active=prod "$@"
@@ -1,7 +1,6 @@
 package com.cursoback.libraryapi;
 
 import com.cursoback.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
@@ -17,11 +16,6 @@ import java.util.List;
 @EnableScheduling
 public class LibraryApiApplication {
 
-	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
-	}
-
 	public static void main(String[] args) {
 		SpringApplication.run(LibraryApiApplication.class, args);
 	}
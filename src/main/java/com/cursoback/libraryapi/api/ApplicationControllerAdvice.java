@@ -2,6 +2,7 @@ package com.cursoback.libraryapi.api;
 
 import com.cursoback.libraryapi.api.exception.ApiErrors;
 import com.cursoback.libraryapi.exception.BusinessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -12,6 +13,8 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
@@ -28,6 +31,18 @@ public class ApplicationControllerAdvice {
         return new ApiErrors(exception);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiErrors handleOptimisticLockingFailure(OptimisticLockingFailureException exception){
+        return new ApiErrors(exception);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiErrors handleRejectedExecution(RejectedExecutionException exception){
+        return new ApiErrors(exception);
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException exception) {
         return new ResponseEntity(new ApiErrors(exception), exception.getStatus());
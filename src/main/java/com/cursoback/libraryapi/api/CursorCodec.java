@@ -0,0 +1,46 @@
+package com.cursoback.libraryapi.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the id of the last row of a page into the opaque {@code after}
+ * token used by keyset pagination. An empty token starts from the beginning.
+ */
+public final class CursorCodec {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 1000;
+
+    private static final String PREFIX = "id:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Long id) {
+        byte[] token = (PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!token.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(token);
+            }
+            return Long.valueOf(token.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+}
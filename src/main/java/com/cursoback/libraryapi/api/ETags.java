@@ -0,0 +1,77 @@
+package com.cursoback.libraryapi.api;
+
+import com.cursoback.libraryapi.model.repository.VersionSummary;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong ETags derived from entity versions, so a conditional request is
+ * answered before anything is mapped or serialized.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(Long id, Long version) {
+        return "\"" + id + "." + (version == null ? 0 : version) + "\"";
+    }
+
+    public static String of(VersionSummary summary, Object... scope) {
+        StringBuilder key = new StringBuilder()
+                .append(summary.getCount()).append(':')
+                .append(summary.getMaxId()).append(':')
+                .append(summary.getVersionSum()).append(':')
+                .append(summary.getBookVersionSum());
+        for (Object part : scope) {
+            key.append('|').append(part);
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Weak comparison, as required for {@code If-None-Match}.
+     */
+    public static boolean notModified(String ifNoneMatch, String current) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether {@code If-Match} names specific versions, so the write has to be
+     * conditional on the version the client saw.
+     */
+    public static boolean requiresMatch(String ifMatch) {
+        return ifMatch != null && !ifMatch.trim().equals("*");
+    }
+
+    public static void checkIfMatch(String ifMatch, String current) {
+        if (!requiresMatch(ifMatch)) {
+            return;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            if (candidate.trim().equals(current)) {
+                return;
+            }
+        }
+        throw preconditionFailed();
+    }
+
+    public static ResponseStatusException preconditionFailed() {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Resource was modified, reload and try again");
+    }
+}
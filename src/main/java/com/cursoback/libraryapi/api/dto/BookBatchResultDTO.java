@@ -0,0 +1,21 @@
+package com.cursoback.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResultDTO {
+
+    public enum Status { CREATED, DUPLICATED, INVALID }
+
+    private int index;
+    private String isbn;
+    private Long id;
+    private Status status;
+    private String error;
+}
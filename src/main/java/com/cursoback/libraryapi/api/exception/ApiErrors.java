@@ -1,12 +1,14 @@
 package com.cursoback.libraryapi.api.exception;
 
 import com.cursoback.libraryapi.exception.BusinessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ApiErrors {
     private List<String> errors;
@@ -23,6 +25,14 @@ public class ApiErrors {
         this.errors = Arrays.asList(exception.getReason()) ;
     }
 
+    public ApiErrors(RejectedExecutionException exception) {
+        this.errors = Arrays.asList("Server is busy, try again later") ;
+    }
+
+    public ApiErrors(OptimisticLockingFailureException exception) {
+        this.errors = Arrays.asList("Resource was updated concurrently, reload and try again") ;
+    }
+
     public List<String> getErrors() {
         return errors;
     }
@@ -0,0 +1,28 @@
+package com.cursoback.libraryapi.api.mapper;
+
+import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.model.entity.Book;
+
+public final class BookMapper {
+
+    private BookMapper() {
+    }
+
+    public static BookDTO toDto(Book book) {
+        BookDTO dto = new BookDTO();
+        dto.setId(book.getId() == null ? 0 : book.getId().intValue());
+        dto.setTitle(book.getTitle());
+        dto.setAuthor(book.getAuthor());
+        dto.setIsbn(book.getIsbn());
+        return dto;
+    }
+
+    public static Book toEntity(BookDTO dto) {
+        Book book = new Book();
+        book.setId(dto.getId() == 0 ? null : (long) dto.getId());
+        book.setTitle(dto.getTitle());
+        book.setAuthor(dto.getAuthor());
+        book.setIsbn(dto.getIsbn());
+        return book;
+    }
+}
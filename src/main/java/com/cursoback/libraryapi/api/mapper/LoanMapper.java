@@ -0,0 +1,24 @@
+package com.cursoback.libraryapi.api.mapper;
+
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+
+public final class LoanMapper {
+
+    private LoanMapper() {
+    }
+
+    public static LoanDTO toDto(Loan loan) {
+        LoanDTO dto = new LoanDTO();
+        dto.setId(loan.getId());
+        dto.setCustomer(loan.getCustomer());
+        dto.setEmail(loan.getCustomerEmail());
+        Book book = loan.getBook();
+        if (book != null) {
+            dto.setIsbn(book.getIsbn());
+            dto.setBook(BookMapper.toDto(book));
+        }
+        return dto;
+    }
+}
@@ -1,12 +1,20 @@
 package com.cursoback.libraryapi.api.resource;
 
 
+import com.cursoback.libraryapi.api.CursorCodec;
+import com.cursoback.libraryapi.api.ETags;
+import com.cursoback.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.api.dto.CursorPageDTO;
 import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.api.dto.SuggestionDTO;
 import com.cursoback.libraryapi.api.exception.ApiErrors;
+import com.cursoback.libraryapi.api.mapper.BookMapper;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
 import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.service.BookSearchService;
 import com.cursoback.libraryapi.service.BookService;
 import com.cursoback.libraryapi.service.LoanService;
 import io.swagger.annotations.Api;
@@ -15,19 +23,25 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @RestController
@@ -37,80 +51,152 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BookController {
 
+    static final int DEFAULT_SUGGESTIONS = 10;
+    static final int MAX_SUGGESTIONS = 50;
+
     private final BookService service;
-    private final ModelMapper modelMapper;
     private final LoanService loanService;
+    private final BookSearchService searchService;
+    @Qualifier("readExecutor")
+    private final Executor readExecutor;
+    @Qualifier("writeExecutor")
+    private final Executor writeExecutor;
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("CREATE A BOOK")
-    public BookDTO create(@RequestBody @Valid BookDTO dto) {
+    public CompletableFuture<ResponseEntity<BookDTO>> create(@RequestBody @Valid BookDTO dto) {
         log.info("creating a book", dto.getIsbn());
-        Book entity = modelMapper.map(dto, Book.class);
-        entity = service.save(entity);
-        return modelMapper.map(entity, BookDTO.class);
+        return CompletableFuture.supplyAsync(() -> {
+            Book entity = service.save(BookMapper.toEntity(dto));
+            return ResponseEntity.status(HttpStatus.CREATED).body(BookMapper.toDto(entity));
+        }, writeExecutor);
+    }
 
+    @PostMapping("batch")
+    @ApiOperation("CREATE BOOKS IN BATCH, REPORTING THE RESULT OF EACH ONE")
+    public CompletableFuture<List<BookBatchResultDTO>> createBatch(@RequestBody List<BookDTO> dtos) {
+        log.info("creating {} books in batch", dtos.size());
+        List<Book> books = dtos.stream()
+                .map(BookMapper::toEntity)
+                .collect(Collectors.toList());
+        return CompletableFuture.supplyAsync(() -> service.saveAll(books), writeExecutor);
     }
 
     @GetMapping("{id}")
     @ApiOperation("Obtains a book details by id")
-    public BookDTO get(@PathVariable Long id){
-        return service
+    public BookDTO get(@PathVariable Long id, WebRequest request){
+        Book book = service
                 .getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
                 .orElseThrow( () ->  new ResponseStatusException(HttpStatus.NOT_FOUND));
-
+        if (request.checkNotModified(ETags.of(book.getId(), book.getVersion()))) {
+            return null;
+        }
+        return BookMapper.toDto(book);
     }
 
     @DeleteMapping("{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiOperation("Delete a book by id")
     @ApiResponses({
             @ApiResponse(code = 204, message = "Book succesfully deleted")
     })
-    public void delete(@PathVariable Long id){
-        Book book  = service.getById(id).orElseThrow( () ->  new ResponseStatusException(HttpStatus.NOT_FOUND));
-        service.delete(book);
+    public CompletableFuture<ResponseEntity<Void>> delete(@PathVariable Long id){
+        return CompletableFuture.supplyAsync(() -> {
+            Book book  = service.getById(id).orElseThrow( () ->  new ResponseStatusException(HttpStatus.NOT_FOUND));
+            service.delete(book);
+            return ResponseEntity.noContent().build();
+        }, writeExecutor);
     }
 
     @PutMapping("{id}")
     @ApiOperation("Update a book by id")
-    public BookDTO update (@PathVariable Long id, @RequestBody @Valid BookDTO dto){
-        return service.getById(id).map( book -> {
+    public CompletableFuture<ResponseEntity<BookDTO>> update (@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return CompletableFuture.supplyAsync(() -> service.getById(id).map( book -> {
+            ETags.checkIfMatch(ifMatch, ETags.of(book.getId(), book.getVersion()));
             book.setAuthor(dto.getAuthor());
             book.setTitle(dto.getTitle());
             book = service.update(book);
-            return modelMapper.map(book, BookDTO.class);
-        }).orElseThrow( () ->  new ResponseStatusException(HttpStatus.NOT_FOUND));
+            return ResponseEntity.ok()
+                    .eTag(ETags.of(book.getId(), book.getVersion()))
+                    .body(BookMapper.toDto(book));
+        }).orElseThrow( () ->  new ResponseStatusException(HttpStatus.NOT_FOUND)), writeExecutor);
     }
 
     @GetMapping
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
-        Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent()
+    public CompletableFuture<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest){
+        Book filter = BookMapper.toEntity(dto);
+        return CompletableFuture.supplyAsync(() -> {
+            Page<Book> result = service.find(filter, pageRequest);
+            List<BookDTO> list = result.getContent()
+                    .stream()
+                    .map(BookMapper::toDto)
+                    .collect(Collectors.toList());
+
+            return new PageImpl<BookDTO>(list , pageRequest, result.getTotalElements());
+        }, readExecutor);
+    }
+
+    @GetMapping(params = "q")
+    @ApiOperation("Full-text search over title and author, ranked by relevance")
+    public CompletableFuture<Page<BookDTO>> search(@RequestParam String q, Pageable pageRequest){
+        return CompletableFuture.supplyAsync(() -> {
+            Page<Book> result = searchService.search(q, pageRequest);
+            List<BookDTO> list = result.getContent()
+                    .stream()
+                    .map(BookMapper::toDto)
+                    .collect(Collectors.toList());
+
+            return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        }, readExecutor);
+    }
+
+    @GetMapping("suggest")
+    @ApiOperation("Autocomplete titles and authors starting with the given prefix")
+    public List<SuggestionDTO> suggest(@RequestParam String q,
+                                       @RequestParam(defaultValue = "" + DEFAULT_SUGGESTIONS) int size){
+        return searchService.suggest(q, Math.max(1, Math.min(size, MAX_SUGGESTIONS)))
                 .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(suggestion -> new SuggestionDTO(suggestion.getText(), suggestion.getField().name()))
                 .collect(Collectors.toList());
+    }
 
-        return new PageImpl<BookDTO>(list , pageRequest, result.getTotalElements());
+    @GetMapping(params = "after")
+    @ApiOperation("Find books by keyset pagination, without counting the total")
+    public CompletableFuture<CursorPageDTO<BookDTO>> findAfter(BookDTO dto,
+                                            @RequestParam String after,
+                                            @RequestParam(defaultValue = "" + CursorCodec.DEFAULT_SIZE) int size){
+        Book filter = BookMapper.toEntity(dto);
+        Long afterId = CursorCodec.decode(after);
+        return CompletableFuture.supplyAsync(() -> {
+            Slice<Book> result = service.findAfter(filter, afterId, CursorCodec.limit(size));
+            List<Book> books = result.getContent();
+            List<BookDTO> list = books
+                    .stream()
+                    .map(BookMapper::toDto)
+                    .collect(Collectors.toList());
+
+            String next = result.hasNext() ? CursorCodec.encode(books.get(books.size() - 1).getId()) : null;
+            return new CursorPageDTO<BookDTO>(list, list.size(), next);
+        }, readExecutor);
     }
 
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
-        Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
-        List<LoanDTO> list = result.getContent()
-                .stream()
-                .map( loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-
-        return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+    public CompletableFuture<ResponseEntity<Page<LoanDTO>>> loansByBook(@PathVariable Long id, Pageable pageable,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return CompletableFuture.supplyAsync(() -> {
+            Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            String etag = ETags.of(loanService.summarizeLoansByBook(book), book.getId(), book.getVersion(), pageable);
+            if (ETags.notModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Page<LoanDTO>>build();
+            }
+            Page<Loan> result = loanService.getLoansByBook(book, pageable);
+            List<LoanDTO> list = result.getContent()
+                    .stream()
+                    .map(LoanMapper::toDto)
+                    .collect(Collectors.toList());
+
+            return ResponseEntity.ok().eTag(etag).body(new PageImpl<LoanDTO>(list, pageable, result.getTotalElements()));
+        }, readExecutor);
     }
 
 
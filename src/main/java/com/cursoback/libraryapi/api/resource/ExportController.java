@@ -0,0 +1,72 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.service.ExportFormat;
+import com.cursoback.libraryapi.service.ExportService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Api("Export API")
+public class ExportController {
+
+    private final ExportService service;
+
+    @GetMapping("books/export")
+    @ApiOperation("Export every book as NDJSON or CSV")
+    public void exportBooks(@RequestParam(defaultValue = "ndjson") String format,
+                            @RequestParam(defaultValue = "false") boolean gzip,
+                            HttpServletResponse response) throws IOException {
+        export("books", format, gzip, response, service::exportBooks);
+    }
+
+    @GetMapping("loans/export")
+    @ApiOperation("Export every loan as NDJSON or CSV")
+    public void exportLoans(@RequestParam(defaultValue = "ndjson") String format,
+                            @RequestParam(defaultValue = "false") boolean gzip,
+                            HttpServletResponse response) throws IOException {
+        export("loans", format, gzip, response, service::exportLoans);
+    }
+
+    private void export(String name, String format, boolean gzip,
+                        HttpServletResponse response, Exporter exporter) throws IOException {
+        ExportFormat exportFormat = parse(format);
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "." + exportFormat.getExtension() + "\"");
+        if (!gzip) {
+            exporter.export(exportFormat, response.getOutputStream());
+            return;
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), 8192);
+        exporter.export(exportFormat, out);
+        out.finish();
+    }
+
+    private static ExportFormat parse(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+    }
+
+    private interface Exporter {
+        void export(ExportFormat format, OutputStream out) throws IOException;
+    }
+}
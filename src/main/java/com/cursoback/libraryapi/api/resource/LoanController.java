@@ -1,25 +1,34 @@
 package com.cursoback.libraryapi.api.resource;
 
-import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.api.CursorCodec;
+import com.cursoback.libraryapi.api.ETags;
+import com.cursoback.libraryapi.api.dto.CursorPageDTO;
 import com.cursoback.libraryapi.api.dto.LoanDTO;
 import com.cursoback.libraryapi.api.dto.LoanFilterDTO;
 import com.cursoback.libraryapi.api.dto.ReturnedLoanDTO;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
 import com.cursoback.libraryapi.service.BookService;
 import com.cursoback.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,49 +38,86 @@ public class LoanController {
 
     private final LoanService service;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    @Qualifier("readExecutor")
+    private final Executor readExecutor;
+    @Qualifier("writeExecutor")
+    private final Executor writeExecutor;
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Long create (@RequestBody LoanDTO dto){
-        Book book = bookService.getBookByIsbn(dto.getIsbn())
-                .orElseThrow( () -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                "Book not found for passed isbn")
-                        );
-        Loan entity = Loan.builder()
-                .book(book)
-                .customer(dto.getCustomer())
-                .loanDate(LocalDate.now())
-                .build();
+    public CompletableFuture<ResponseEntity<Long>> create (@RequestBody LoanDTO dto){
+        return CompletableFuture.supplyAsync(() -> {
+            Book book = bookService.getBookByIsbn(dto.getIsbn())
+                    .orElseThrow( () -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                    "Book not found for passed isbn")
+                            );
+            Loan entity = Loan.builder()
+                    .book(book)
+                    .customer(dto.getCustomer())
+                    .loanDate(LocalDate.now())
+                    .build();
 
-        entity = service.save(entity);
+            entity = service.save(entity);
 
-        return entity.getId();
+            return ResponseEntity.status(HttpStatus.CREATED).body(entity.getId());
+        }, writeExecutor);
     }
 
     @PatchMapping("{id}")
-    public void returnBook(
+    public CompletableFuture<ResponseEntity<Void>> returnBook(
             @PathVariable Long id,
-            @RequestBody ReturnedLoanDTO dto
+            @RequestBody ReturnedLoanDTO dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
             ) {
-        Loan loan = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        loan.setReturned(dto.getReturned());
-        service.update(loan);
+        return CompletableFuture.supplyAsync(() -> {
+            Loan loan = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            loan.setReturned(dto.getReturned());
+            if (ETags.requiresMatch(ifMatch)) {
+                ETags.checkIfMatch(ifMatch, ETags.of(loan.getId(), loan.getVersion()));
+                try {
+                    loan = service.updateIfUnchanged(loan);
+                } catch (OptimisticLockingFailureException e) {
+                    throw ETags.preconditionFailed();
+                }
+            } else {
+                loan = service.update(loan);
+            }
+            return ResponseEntity.ok().eTag(ETags.of(loan.getId(), loan.getVersion())).<Void>build();
+        }, writeExecutor);
     }
 
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageable) {
-        Page<Loan> result = service.find(dto, pageable);
-        List<LoanDTO> loans = result
-                .getContent()
-                .stream()
-                .map( entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-        return loanDTO;
-        }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+    public CompletableFuture<ResponseEntity<Page<LoanDTO>>> find(LoanFilterDTO dto, Pageable pageable,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CompletableFuture.supplyAsync(() -> {
+            String etag = ETags.of(service.summarize(dto), dto.getIsbn(), dto.getCustomer(), pageable);
+            if (ETags.notModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Page<LoanDTO>>build();
+            }
+            Page<Loan> result = service.find(dto, pageable);
+            List<LoanDTO> loans = result
+                    .getContent()
+                    .stream()
+                    .map(LoanMapper::toDto)
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok().eTag(etag).body(new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements()));
+        }, readExecutor);
+    }
+
+    @GetMapping(params = "after")
+    public CompletableFuture<CursorPageDTO<LoanDTO>> findAfter(LoanFilterDTO dto,
+                                            @RequestParam String after,
+                                            @RequestParam(defaultValue = "" + CursorCodec.DEFAULT_SIZE) int size) {
+        Long afterId = CursorCodec.decode(after);
+        return CompletableFuture.supplyAsync(() -> {
+            Slice<Loan> result = service.findAfter(dto, afterId, CursorCodec.limit(size));
+            List<Loan> content = result.getContent();
+            List<LoanDTO> loans = content
+                    .stream()
+                    .map(LoanMapper::toDto)
+                    .collect(Collectors.toList());
+
+            String next = result.hasNext() ? CursorCodec.encode(content.get(content.size() - 1).getId()) : null;
+            return new CursorPageDTO<LoanDTO>(loans, loans.size(), next);
+        }, readExecutor);
     }
 }
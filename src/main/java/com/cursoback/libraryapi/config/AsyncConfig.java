@@ -0,0 +1,93 @@
+package com.cursoback.libraryapi.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Controllers hand their database work to these pools and release the
+ * servlet thread. Reads and writes get separate bounded pools, so a burst
+ * of heavy listings cannot hold every thread that a cheap lookup or a write
+ * needs. A full queue rejects the request (503) instead of buffering it.
+ * <p>
+ * Spring MVC writes streamed bodies, such as a {@code Flux} returned by a
+ * controller, on {@link #streamExecutor}. Without it MVC falls back to a
+ * {@code SimpleAsyncTaskExecutor}, which starts a new thread per stream.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final long timeout;
+    private final ObjectProvider<AsyncTaskExecutor> streamExecutor;
+
+    public AsyncConfig(@Value("${application.async.timeout:10000}") long timeout,
+            @Qualifier("streamExecutor") ObjectProvider<AsyncTaskExecutor> streamExecutor) {
+        this.timeout = timeout;
+        this.streamExecutor = streamExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeout);
+        configurer.setTaskExecutor(streamExecutor.getObject());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor readExecutor(
+            @Value("${application.async.read.threads:16}") int threads,
+            @Value("${application.async.read.queue-capacity:200}") int queueCapacity) {
+        return executor("read-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor writeExecutor(
+            @Value("${application.async.write.threads:8}") int threads,
+            @Value("${application.async.write.queue-capacity:100}") int queueCapacity) {
+        return executor("write-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor(
+            @Value("${application.async.stream.threads:8}") int threads,
+            @Value("${application.async.stream.queue-capacity:100}") int queueCapacity) {
+        return executor("stream-", threads, queueCapacity);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.setTaskDecorator(sqlStatisticsPropagation());
+        return executor;
+    }
+
+    /**
+     * Carries the request's SQL recording over to the pool thread.
+     */
+    static TaskDecorator sqlStatisticsPropagation() {
+        return task -> {
+            SqlStatistics statistics = SqlStatementRecorder.current();
+            if (statistics == null) {
+                return task;
+            }
+            return () -> {
+                SqlStatistics previous = SqlStatementRecorder.current();
+                SqlStatementRecorder.attach(statistics);
+                try {
+                    task.run();
+                } finally {
+                    SqlStatementRecorder.attach(previous);
+                }
+            };
+        };
+    }
+}
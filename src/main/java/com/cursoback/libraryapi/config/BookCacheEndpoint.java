@@ -0,0 +1,87 @@
+package com.cursoback.libraryapi.config;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import org.ehcache.core.InternalCache;
+import org.ehcache.core.statistics.CacheStatistics;
+import org.ehcache.core.statistics.DefaultCacheStatistics;
+import org.ehcache.core.statistics.TierStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistics of the second level cache regions that hold books. Hits, misses
+ * and puts come from Hibernate; evictions and size come from the Ehcache
+ * statistics of the cache behind each region, so no read walks the entries.
+ */
+@Component
+@Endpoint(id = "bookcache")
+public class BookCacheEndpoint {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final Map<String, CacheStatistics> cacheStatistics = new ConcurrentHashMap<>();
+
+    public BookCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class).unwrap(SessionFactoryImplementor.class);
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        result.put(Book.CACHE_REGION, region(Book.CACHE_REGION,
+                sessionFactory.getStatistics().getDomainDataRegionStatistics(Book.CACHE_REGION)));
+        result.put(Book.ISBN_QUERY_REGION, region(Book.ISBN_QUERY_REGION,
+                sessionFactory.getStatistics().getQueryRegionStatistics(Book.ISBN_QUERY_REGION)));
+        return result;
+    }
+
+    private Map<String, Object> region(String name, CacheRegionStatistics stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (stats == null) {
+            return values;
+        }
+        long hits = stats.getHitCount();
+        long misses = stats.getMissCount();
+        values.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        values.put("hits", hits);
+        values.put("misses", misses);
+        values.put("puts", stats.getPutCount());
+
+        Cache<Object, Object> cache = cacheManager().getCache(name);
+        if (cache != null) {
+            CacheStatistics statistics = cacheStatistics.computeIfAbsent(name, key -> statistics(cache));
+            values.put("evictions", statistics.getCacheEvictions());
+            values.put("size", size(statistics));
+        }
+        return values;
+    }
+
+    private CacheManager cacheManager() {
+        return ((JCacheRegionFactory) sessionFactory.getCache().getRegionFactory()).getCacheManager();
+    }
+
+    static CacheStatistics statistics(Cache<?, ?> cache) {
+        return new DefaultCacheStatistics((InternalCache<?, ?>) cache.unwrap(org.ehcache.Cache.class));
+    }
+
+    /**
+     * The lowest tier holds every mapping, so the largest tier is the cache size.
+     */
+    static long size(CacheStatistics statistics) {
+        return statistics.getTierStatistics().values().stream()
+                .mapToLong(TierStatistics::getMappings)
+                .max()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,26 @@
+package com.cursoback.libraryapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Deferred JPA bootstrap builds the entity manager factory on the executor
+ * named {@code applicationTaskExecutor}. Boot does not create it here because
+ * the application declares its own executors, so the {@code prod} profile
+ * provides one.
+ */
+@Configuration
+@Profile("prod")
+public class BootstrapConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor applicationTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("bootstrap-");
+        return executor;
+    }
+}
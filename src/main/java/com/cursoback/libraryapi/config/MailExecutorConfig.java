@@ -0,0 +1,45 @@
+package com.cursoback.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MailExecutorConfig {
+
+    /**
+     * Bounded pool for the late-loan mail batches. When the queue is full the
+     * scheduler thread runs the batch itself, which throttles the producer
+     * instead of buffering the whole run in memory.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor lateLoansMailExecutor(
+            @Value("${application.mail.lateloans.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 2);
+        executor.setThreadNamePrefix("late-loans-mail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * The pool size is the maximum number of SMTP sends in flight at once.
+     * The dispatcher never submits more than that, so the queue only has to
+     * absorb a poll that runs while workers are finishing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor emailOutboxExecutor(
+            @Value("${application.mail.outbox.concurrency:4}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(concurrency);
+        executor.setThreadNamePrefix("email-outbox-");
+        return executor;
+    }
+}
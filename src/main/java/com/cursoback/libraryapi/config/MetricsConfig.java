@@ -0,0 +1,32 @@
+package com.cursoback.libraryapi.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+
+/**
+ * Timers for {@code @Timed} methods and saturation gauges (active threads,
+ * queued tasks, remaining queue capacity) for every task executor bean.
+ * Connection pool gauges come from Boot's Hikari metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder taskExecutorMetrics(Map<String, ThreadPoolTaskExecutor> executors) {
+        return registry -> executors.forEach((name, executor) ->
+                new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(registry));
+    }
+}
@@ -0,0 +1,91 @@
+package com.cursoback.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records the statements of each request and warns when it runs more than
+ * {@code application.sql.query-budget} of them, listing the repeated ones.
+ * A recording already attached to the thread (a test) is joined, not
+ * replaced. Async requests are reported when they complete.
+ */
+@Component
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final int queryBudget;
+
+    public QueryBudgetFilter(@Value("${application.sql.query-budget:20}") int queryBudget) {
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatementRecorder.current();
+        boolean owner = statistics == null;
+        if (owner) {
+            statistics = new SqlStatistics();
+            SqlStatementRecorder.attach(statistics);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (owner) {
+                SqlStatementRecorder.attach(null);
+            }
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReportOnComplete(request, statistics));
+            } else {
+                report(request, statistics);
+            }
+        }
+    }
+
+    private class ReportOnComplete implements AsyncListener {
+        private final HttpServletRequest request;
+        private final SqlStatistics statistics;
+
+        ReportOnComplete(HttpServletRequest request, SqlStatistics statistics) {
+            this.request = request;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            report(request, statistics);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatistics statistics) {
+        if (statistics.getCount() > queryBudget) {
+            log.warn("{} {} ran {}, over the budget of {}; repeated statements: {}",
+                    request.getMethod(), request.getRequestURI(), statistics, queryBudget,
+                    statistics.getRepeatedShapes());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {} ran {}", request.getMethod(), request.getRequestURI(), statistics);
+        }
+    }
+}
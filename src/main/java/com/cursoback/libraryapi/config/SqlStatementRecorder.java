@@ -0,0 +1,59 @@
+package com.cursoback.libraryapi.config;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Collects the statements run by the current thread into the
+ * {@link SqlStatistics} attached to it. Tests wrap a request in
+ * {@link #record(ThrowingRunnable)} to assert how many statements it ran.
+ */
+public final class SqlStatementRecorder {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementRecorder() {
+    }
+
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void attach(SqlStatistics statistics) {
+        if (statistics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statistics);
+        }
+    }
+
+    public static <T> T record(SqlStatistics statistics, Callable<T> work) throws Exception {
+        SqlStatistics previous = CURRENT.get();
+        CURRENT.set(statistics);
+        try {
+            return work.call();
+        } finally {
+            attach(previous);
+        }
+    }
+
+    public static SqlStatistics record(ThrowingRunnable work) throws Exception {
+        SqlStatistics statistics = new SqlStatistics();
+        record(statistics, () -> {
+            work.run();
+            return null;
+        });
+        return statistics;
+    }
+
+    static void onStatement(String sql, long elapsedMillis) {
+        SqlStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.record(sql, elapsedMillis);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
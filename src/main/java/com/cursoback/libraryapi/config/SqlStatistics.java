@@ -0,0 +1,79 @@
+package com.cursoback.libraryapi.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Statements executed while a {@link SqlStatementRecorder} was active, with
+ * the number of times each distinct statement text ran. The same text
+ * running many times in one request is the signature of an N+1.
+ * <p>
+ * Every JDBC statement passes through {@link #record}, so it is guarded by a
+ * {@link Lock} rather than {@code synchronized}, which would pin a virtual
+ * thread to its carrier.
+ */
+public class SqlStatistics {
+
+    private final Lock lock = new ReentrantLock();
+    private int count;
+    private long elapsedMillis;
+    private final Map<String, Integer> shapes = new LinkedHashMap<>();
+
+    void record(String sql, long elapsedMillis) {
+        lock.lock();
+        try {
+            count++;
+            this.elapsedMillis += elapsedMillis;
+            shapes.merge(sql.trim(), 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getElapsedMillis() {
+        lock.lock();
+        try {
+            return elapsedMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Integer> getShapes() {
+        lock.lock();
+        try {
+            return new LinkedHashMap<>(shapes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Integer> getRepeatedShapes() {
+        return getShapes().entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() > 1)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return count + " statements in " + elapsedMillis + " ms";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
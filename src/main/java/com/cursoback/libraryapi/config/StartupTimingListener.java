@@ -0,0 +1,106 @@
+package com.cursoback.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs how long each startup phase took, from JVM launch to the application
+ * being ready. With {@code application.startup.exit-after-ready=true} the
+ * application exits once ready, which is how the class-data sharing archive
+ * is recorded (see {@code scripts/cds-archive.sh}).
+ * <p>
+ * Beans are created until {@link ContextRefreshedEvent}; the embedded web
+ * server is started after it, at the end of the refresh, and the ready phase
+ * covers the runners and the started and ready listeners. Registered in
+ * {@code META-INF/spring.factories}; runs after Boot's own listener, so the
+ * ready phase includes the {@code ApplicationReadyEvent} listeners.
+ */
+@Slf4j
+public class StartupTimingListener implements SpringApplicationRunListener, Ordered {
+
+    static final String EXIT_AFTER_READY = "application.startup.exit-after-ready";
+
+    private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private long starting;
+    private long environmentPrepared;
+    private long contextLoaded;
+    private long refreshed;
+    private long webServerStarted;
+    private long started;
+
+    public StartupTimingListener(SpringApplication application, String[] args) {
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void starting() {
+        starting = System.currentTimeMillis();
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        environmentPrepared = System.currentTimeMillis();
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        // child contexts, such as a management server on its own port, publish to this one too
+        context.addApplicationListener((ApplicationListener<ContextRefreshedEvent>) event -> {
+            if (event.getApplicationContext() == context) {
+                refreshed = System.currentTimeMillis();
+            }
+        });
+        context.addApplicationListener((ApplicationListener<WebServerInitializedEvent>) event -> {
+            if (event.getApplicationContext() == context) {
+                webServerStarted = System.currentTimeMillis();
+            }
+        });
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        contextLoaded = System.currentTimeMillis();
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        started = System.currentTimeMillis();
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        long ready = System.currentTimeMillis();
+        long beansCreated = refreshed == 0 ? started : refreshed;
+        long serving = webServerStarted == 0 ? beansCreated : webServerStarted;
+        log.info("Startup: jvm {} ms, environment {} ms, context {} ms, beans {} ms, web server {} ms, ready {} ms; "
+                        + "{} ms since JVM start",
+                starting - jvmStart,
+                environmentPrepared - starting,
+                contextLoaded - environmentPrepared,
+                beansCreated - contextLoaded,
+                serving - beansCreated,
+                ready - serving,
+                ready - jvmStart);
+
+        if (context.getEnvironment().getProperty(EXIT_AFTER_READY, Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+    }
+}
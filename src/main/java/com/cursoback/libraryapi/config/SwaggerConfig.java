@@ -1,7 +1,9 @@
 package com.cursoback.libraryapi.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -11,8 +13,15 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+/**
+ * Springfox scans every handler method at startup, so the docs are left out
+ * of the {@code prod} profile. It also needs a servlet context, so contexts
+ * started without the web layer, like the benchmarks', skip it.
+ */
 @EnableSwagger2
 @Configuration
+@Profile("!prod")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SwaggerConfig {
     @Bean
     public Docket docket(){
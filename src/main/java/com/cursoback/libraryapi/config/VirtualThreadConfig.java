@@ -0,0 +1,73 @@
+package com.cursoback.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * With {@code application.threads.virtual=true} on Java 21 or later, Tomcat
+ * serves every request on its own virtual thread, the {@code @Scheduled} jobs
+ * run on virtual threads and every task executor (mail, read, write and
+ * stream pools) starts virtual threads instead of platform ones. The
+ * executors keep their pool size and queue, which now only cap concurrency.
+ * On older runtimes the flag is ignored with a warning.
+ */
+@Configuration
+@Conditional(VirtualThreadConfig.VirtualThreadsEnabled.class)
+public class VirtualThreadConfig {
+
+    static final String PROPERTY = "application.threads.virtual";
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-"));
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadFactory(VirtualThreads.threadFactory("scheduling-"));
+        return scheduler;
+    }
+
+    @Bean
+    public static BeanPostProcessor virtualThreadExecutors() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof ThreadPoolTaskExecutor) {
+                    ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) bean;
+                    executor.setThreadFactory(VirtualThreads.threadFactory(executor.getThreadNamePrefix()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Slf4j
+    static class VirtualThreadsEnabled extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            if (!context.getEnvironment().getProperty(PROPERTY, Boolean.class, false)) {
+                return ConditionOutcome.noMatch(PROPERTY + " is not set");
+            }
+            if (!VirtualThreads.isAvailable()) {
+                log.warn("{} is set but Java {} has no virtual threads, using platform threads",
+                        PROPERTY, System.getProperty("java.version"));
+                return ConditionOutcome.noMatch("virtual threads are not available");
+            }
+            return ConditionOutcome.match("virtual threads enabled");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.cursoback.libraryapi.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reflective access to the JDK 21 virtual thread API, so the application
+ * keeps compiling for Java 8 and only switches thread model on a runtime
+ * that supports it.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = find(Thread.class, "ofVirtual");
+    private static final Method IS_VIRTUAL = find(Thread.class, "isVirtual");
+    private static final Method NAME = find("java.lang.Thread$Builder", "name", String.class, long.class);
+    private static final Method FACTORY = find("java.lang.Thread$Builder", "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+            find(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        return IS_VIRTUAL != null && (boolean) invoke(IS_VIRTUAL, thread);
+    }
+
+    /**
+     * Factory of virtual threads named {@code prefix0}, {@code prefix1}, ...
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        requireAvailable();
+        Object builder = invoke(OF_VIRTUAL, null);
+        builder = invoke(NAME, builder, prefix, 0L);
+        return (ThreadFactory) invoke(FACTORY, builder);
+    }
+
+    /**
+     * Unbounded executor that starts a new virtual thread for every task.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return (ExecutorService) invoke(NEW_THREAD_PER_TASK_EXECUTOR, null, threadFactory(prefix));
+    }
+
+    private static void requireAvailable() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Virtual threads require Java 21, running on "
+                    + System.getProperty("java.version"));
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not call " + method, e);
+        }
+    }
+
+    private static Method find(String className, String name, Class<?>... parameterTypes) {
+        try {
+            return find(Class.forName(className), name, parameterTypes);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method find(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -3,7 +3,11 @@ package com.cursoback.libraryapi.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
@@ -14,10 +18,16 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @Table
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
 public class Book {
+    public static final String CACHE_REGION = "book";
+    public static final String ISBN_QUERY_REGION = "query.bookByIsbn";
+
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
     @Column
     private String title;
@@ -26,6 +36,12 @@ public class Book {
     @Column
     private String isbn;
 
+    @Version
+    @Column
+    private Long version;
+
     @OneToMany (mappedBy = "book")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Loan> loans;
 }
@@ -0,0 +1,57 @@
+package com.cursoback.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "email_outbox")
+public class EmailOutbox {
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column
+    private String subject;
+
+    @Column(length = 4000)
+    private String message;
+
+    @Column(length = 8000)
+    private String recipients;
+
+    @Column
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column
+    private Integer attempts;
+
+    @Column
+    private LocalDateTime nextAttemptAt;
+
+    @Column
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Version
+    @Column
+    private Long version;
+}
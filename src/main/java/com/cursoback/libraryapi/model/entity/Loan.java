@@ -3,7 +3,9 @@ package com.cursoback.libraryapi.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -27,7 +29,9 @@ public class Loan {
     private String customerEmail;
 
     @JoinColumn(name = "id_book")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
 
     @Column
@@ -35,4 +39,17 @@ public class Loan {
 
     @Column
     private Boolean returned;
+
+    @Version
+    @Column
+    private Long version;
+
+    @Column(name = "open_book_id")
+    private Long openBookId;
+
+    @PrePersist
+    @PreUpdate
+    void syncOpenBookId() {
+        openBookId = Boolean.TRUE.equals(returned) || book == null ? null : book.getId();
+    }
 }
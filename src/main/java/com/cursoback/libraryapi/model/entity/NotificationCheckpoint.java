@@ -0,0 +1,30 @@
+package com.cursoback.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class NotificationCheckpoint {
+
+    @Id
+    @Column
+    private String job;
+
+    @Column
+    private LocalDate runDate;
+
+    @Column
+    private Long lastLoanId;
+
+    @Column
+    private Boolean completed;
+}
@@ -1,13 +1,66 @@
 package com.cursoback.libraryapi.model.repository;
 
 import com.cursoback.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = Book.ISBN_QUERY_REGION)
+    })
     boolean existsByIsbn(String isbn);
 
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = Book.ISBN_QUERY_REGION)
+    })
     Optional<Book> findByIsbn(String isbn);
 
+    @Query(" select b.isbn from Book b where b.isbn in :isbns ")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Export scan: bypasses the second level cache so a full export does not
+     * evict the books the lookups keep hot.
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE")
+    })
+    @Query(" select b from Book b order by b.id ")
+    Stream<Book> streamAll();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(" select b.id as id, b.title as title, b.author as author from Book b order by b.id ")
+    Stream<IndexEntry> streamIndexEntries();
+
+    @Query(" select b from Book b where b.id > :after " +
+            " and ( :title is null or lower(b.title) like lower(concat('%', :title, '%')) ) " +
+            " and ( :author is null or lower(b.author) like lower(concat('%', :author, '%')) ) " +
+            " and ( :isbn is null or lower(b.isbn) like lower(concat('%', :isbn, '%')) ) ")
+    Slice<Book> findNextPage(
+            @Param("after") Long after,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            Pageable pageable);
+
+    interface IndexEntry {
+        Long getId();
+
+        String getTitle();
+
+        String getAuthor();
+    }
 }
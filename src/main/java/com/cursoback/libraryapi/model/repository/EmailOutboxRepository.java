@@ -0,0 +1,31 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    List<EmailOutbox> findByStatusAndNextAttemptAtLessThanEqualOrderById(
+            EmailOutbox.Status status, LocalDateTime now, Pageable pageable);
+
+    /**
+     * Leases a due row for one sender. Returns 0 when another poll already
+     * claimed it or its state changed since it was read.
+     */
+    @Transactional
+    @Modifying
+    @Query(" update EmailOutbox m set m.nextAttemptAt = :leaseUntil, m.version = m.version + 1 " +
+            " where m.id = :id and m.version = :version " +
+            " and m.status = com.cursoback.libraryapi.model.entity.EmailOutbox$Status.PENDING " +
+            " and m.nextAttemptAt <= :now ")
+    int claim(@Param("id") Long id, @Param("version") Long version,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+}
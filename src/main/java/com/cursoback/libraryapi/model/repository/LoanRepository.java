@@ -5,12 +5,18 @@ import com.cursoback.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
@@ -19,16 +25,70 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
             " and ( l.returned is null or l.returned is false ) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query( value = " select l from Loan as l join l.book as b where " +
+    /**
+     * Sets the returned flag only if the loan still has the given version and
+     * moves the version, so two writers holding the same version cannot both
+     * succeed. Returns 0 when the loan is missing or was changed meanwhile.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(" update Loan l set l.returned = true, l.openBookId = null, l.version = l.version + 1 " +
+            "where l.id = :id and l.version = :version ")
+    int markReturned(@Param("id") Long id, @Param("version") Long version);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(" update Loan l set l.returned = false, l.openBookId = l.book.id, l.version = l.version + 1 " +
+            "where l.id = :id and l.version = :version ")
+    int markNotReturned(@Param("id") Long id, @Param("version") Long version);
+
+    @Query( value = " select l from Loan as l join fetch l.book as b where " +
+            "b.isbn = :isbn or l.customer =:customer ",
+            countQuery = " select count(l) from Loan as l join l.book as b where " +
             "b.isbn = :isbn or l.customer =:customer ")
     Page<Loan> findByBookIsbnOrCustomer(
             @Param("isbn") String isbn,
             @Param("customer") String customer,
             Pageable pageRequest);
 
-    Page<Loan> findByBook(Book book, Pageable pageable);
+    @Query( value = " select l from Loan as l join fetch l.book as b where " +
+            "( b.isbn = :isbn or l.customer =:customer ) and l.id > :after ")
+    Slice<Loan> findNextPageByBookIsbnOrCustomer(
+            @Param("after") Long after,
+            @Param("isbn") String isbn,
+            @Param("customer") String customer,
+            Pageable pageable);
+
+    @Query( value = " select l from Loan as l join fetch l.book where l.book = :book ",
+            countQuery = " select count(l) from Loan as l where l.book = :book ")
+    Page<Loan> findByBook(@Param("book") Book book, Pageable pageable);
+
+    @Query( " select new com.cursoback.libraryapi.model.repository.VersionSummary(" +
+            "count(l), max(l.id), sum(l.version), sum(b.version)) from Loan l join l.book as b where b = :book ")
+    VersionSummary summarizeByBook(@Param("book") Book book);
+
+    @Query( " select new com.cursoback.libraryapi.model.repository.VersionSummary(" +
+            "count(l), max(l.id), sum(l.version), sum(b.version)) from Loan as l join l.book as b where " +
+            "b.isbn = :isbn or l.customer =:customer ")
+    VersionSummary summarizeByBookIsbnOrCustomer(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer);
 
     @Query (" select l from Loan l where l.loanDate <= :threeDaysAgo and " +
             "( l.returned is null or l.returned is false ) ")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    @Query (" select l from Loan l where l.loanDate <= :threeDaysAgo and " +
+            "( l.returned is null or l.returned is false ) and l.id > :after order by l.id ")
+    List<Loan> findLateLoansAfter(
+            @Param("threeDaysAgo") LocalDate threeDaysAgo,
+            @Param("after") Long after,
+            Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE")
+    })
+    @Query(" select l from Loan l join fetch l.book order by l.id ")
+    Stream<Loan> streamAllWithBook();
 }
@@ -0,0 +1,7 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.NotificationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface NotificationCheckpointRepository extends JpaRepository<NotificationCheckpoint, String> {
+}
@@ -0,0 +1,27 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.NotifiedRecipient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Set;
+
+public interface NotifiedRecipientRepository extends JpaRepository<NotifiedRecipient, Long> {
+
+    @Query(" select r.email from NotifiedRecipient r " +
+            "where r.job = :job and r.runDate = :runDate and r.email in :emails ")
+    Set<String> findNotified(
+            @Param("job") String job,
+            @Param("runDate") LocalDate runDate,
+            @Param("emails") Collection<String> emails);
+
+    @Transactional
+    @Modifying
+    @Query(" delete from NotifiedRecipient r where r.job = :job and r.runDate < :runDate ")
+    int deleteBefore(@Param("job") String job, @Param("runDate") LocalDate runDate);
+}
@@ -0,0 +1,20 @@
+package com.cursoback.libraryapi.model.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Row count, highest id and sum of {@code @Version} values of a set of loans,
+ * plus the sum of the versions of their books, which are embedded in the
+ * responses. Ids and versions only grow, so inserting, deleting or updating
+ * a loan of the set, or updating one of its books, changes at least one of
+ * them.
+ */
+@Getter
+@AllArgsConstructor
+public class VersionSummary {
+    private final Long count;
+    private final Long maxId;
+    private final Long versionSum;
+    private final Long bookVersionSum;
+}
@@ -0,0 +1,15 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.service.search.Suggestion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface BookSearchService {
+
+    Page<Book> search(String query, Pageable pageable);
+
+    List<Suggestion> suggest(String prefix, int limit);
+}
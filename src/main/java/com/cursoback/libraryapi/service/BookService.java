@@ -1,14 +1,19 @@
 package com.cursoback.libraryapi.service;
 
+import com.cursoback.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursoback.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
     Book save(Book any);
 
+    List<BookBatchResultDTO> saveAll(List<Book> books);
+
     Optional<Book> getById(Long id);
 
     void delete(Book book);
@@ -17,5 +22,7 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, Long after, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
 }
@@ -0,0 +1,158 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.EmailOutbox;
+import com.cursoback.libraryapi.model.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drains due outbox rows on the emailOutboxExecutor, whose pool size caps
+ * the number of concurrent SMTP sessions. Each poll reads no more rows than
+ * the executor has free slots and claims every row with a conditional
+ * update, so a row is only handed to one sender even when its lease ran out
+ * while it was still queued. The final status is written through the
+ * versioned entity, so a sender that lost its lease cannot overwrite the
+ * outcome of the one that re-claimed the row. Failed sends are retried with
+ * exponential backoff until max-attempts, then left as FAILED. Each SMTP
+ * send is timed as mail.send, tagged with the exception it failed with.
+ */
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    @Value("${application.mail.default-sender}")
+    private String rementent;
+
+    @Value("${application.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${application.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.mail.outbox.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${application.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${application.mail.outbox.concurrency:4}")
+    private void setConcurrency(int concurrency) {
+        this.slots = new Semaphore(concurrency);
+    }
+
+    /**
+     * One permit per executor thread, held from the claim until the send
+     * finished, so the executor queue never holds more than one poll.
+     */
+    private Semaphore slots;
+
+    private final EmailOutboxRepository repository;
+    private final JavaMailSender javaMailSender;
+    @Qualifier("emailOutboxExecutor")
+    private final Executor emailOutboxExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-interval:5000}")
+    public void dispatch() {
+        int free = Math.min(batchSize, slots.availablePermits());
+        if (free == 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> due = repository.findByStatusAndNextAttemptAtLessThanEqualOrderById(
+                EmailOutbox.Status.PENDING, now, PageRequest.of(0, free));
+
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        for (EmailOutbox mail : due) {
+            if (!slots.tryAcquire()) {
+                return;
+            }
+            if (repository.claim(mail.getId(), mail.getVersion(), now, leaseUntil) == 0) {
+                slots.release();
+                continue;
+            }
+            mail.setNextAttemptAt(leaseUntil);
+            mail.setVersion(mail.getVersion() + 1);
+            try {
+                emailOutboxExecutor.execute(() -> {
+                    try {
+                        send(mail);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the lease expires and a later poll picks the row up again
+                slots.release();
+                log.warn("outbox executor rejected mail {}", mail.getId(), e);
+                return;
+            }
+        }
+    }
+
+    private void send(EmailOutbox mail) {
+        try {
+            SimpleMailMessage mailMessage = new SimpleMailMessage();
+            mailMessage.setFrom(rementent);
+            mailMessage.setSubject(mail.getSubject());
+            mailMessage.setText(mail.getMessage());
+            mailMessage.setTo(mail.getRecipients().split(","));
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String exception = "none";
+            try {
+                javaMailSender.send(mailMessage);
+            } catch (RuntimeException e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                sample.stop(meterRegistry.timer("mail.send", "exception", exception));
+            }
+
+            mail.setStatus(EmailOutbox.Status.SENT);
+            mail.setSentAt(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            int attempts = mail.getAttempts() + 1;
+            log.warn("failed to send outbox mail {} (attempt {})", mail.getId(), attempts, e);
+            mail.setAttempts(attempts);
+            mail.setLastError(truncate(e.toString()));
+            if (attempts >= maxAttempts) {
+                mail.setStatus(EmailOutbox.Status.FAILED);
+            } else {
+                mail.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoffSeconds << (attempts - 1)));
+            }
+        }
+        try {
+            repository.save(mail);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("outbox mail {} was claimed again while it was being sent", mail.getId());
+        }
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= 1000) {
+            return error;
+        }
+        return error.substring(0, 1000);
+    }
+}
@@ -4,8 +4,10 @@ import com.cursoback.libraryapi.api.dto.LoanFilterDTO;
 import com.cursoback.libraryapi.api.resource.BookController;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.VersionSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,9 +20,19 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
+    Loan updateIfUnchanged(Loan loan);
+
     Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable);
 
+    Slice<Loan> findAfter(LoanFilterDTO filterDTO, Long after, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    VersionSummary summarize(LoanFilterDTO filterDTO);
+
+    VersionSummary summarizeLoansByBook(Book book);
+
     List<Loan> getAllLateLoans();
+
+    List<Loan> getLateLoansAfter(Long after, int size);
 }
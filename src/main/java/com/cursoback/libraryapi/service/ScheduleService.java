@@ -1,33 +1,129 @@
 package com.cursoback.libraryapi.service;
 
 import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.entity.NotificationCheckpoint;
+import com.cursoback.libraryapi.model.entity.NotifiedRecipient;
+import com.cursoback.libraryapi.model.repository.NotificationCheckpointRepository;
+import com.cursoback.libraryapi.model.repository.NotifiedRecipientRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
+/**
+ * Walks the overdue loans in keyset chunks, sending each recipient a single
+ * mail per run. After every chunk the recipients mailed are stored with the
+ * run and the last loan id is checkpointed, so a run interrupted by a crash
+ * resumes where it stopped on the same day without mailing anyone twice.
+ */
 @Service
+@Lazy(false)
 @RequiredArgsConstructor
+@Slf4j
 public class ScheduleService {
     private static final String CRON_LATE_LOANS = "0 15 16 1/1 * ?";
+    static final String JOB_LATE_LOANS = "late-loans";
 
     @Value("${application.mail.lateloans.message}")
     private String message;
 
+    @Value("${application.mail.lateloans.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.mail.lateloans.batch-size:50}")
+    private int batchSize;
+
     private final LoanService loanService;
     private final EmailService emailService;
+    private final NotificationCheckpointRepository checkpointRepository;
+    private final NotifiedRecipientRepository recipientRepository;
+    @Qualifier("lateLoansMailExecutor")
+    private final Executor lateLoansMailExecutor;
+    private final MeterRegistry meterRegistry;
 
     @Scheduled(cron = CRON_LATE_LOANS)
+    @Timed("lateloans.run")
     public void sendMailToLateLoans(){
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLateLoans.stream()
-                .map(loan -> loan.getCustomerEmail())
-                .collect(Collectors.toList());
+        LocalDate today = LocalDate.now();
+        NotificationCheckpoint checkpoint = checkpointRepository.findById(JOB_LATE_LOANS)
+                .filter(saved -> today.equals(saved.getRunDate()))
+                .orElseGet(() -> NotificationCheckpoint.builder()
+                        .job(JOB_LATE_LOANS)
+                        .runDate(today)
+                        .lastLoanId(0L)
+                        .completed(false)
+                        .build());
+
+        if (Boolean.TRUE.equals(checkpoint.getCompleted())) {
+            log.info("late loans already notified today");
+            return;
+        }
+        log.info("notifying late loans after loan {}", checkpoint.getLastLoanId());
+        recipientRepository.deleteBefore(JOB_LATE_LOANS, today);
+
+        Counter loansProcessed = meterRegistry.counter("lateloans.loans.processed");
+        Counter recipientsNotified = meterRegistry.counter("lateloans.recipients.notified");
+        Counter batchesSent = meterRegistry.counter("lateloans.batches.sent");
+
+        long notified = 0;
+        List<Loan> chunk;
+        do {
+            chunk = loanService.getLateLoansAfter(checkpoint.getLastLoanId(), chunkSize);
 
-        emailService.sendMails(message, mailsList);
+            Map<String, String> recipients = new LinkedHashMap<>();
+            for (Loan loan : chunk) {
+                String email = loan.getCustomerEmail();
+                if (email != null) {
+                    recipients.putIfAbsent(email.trim().toLowerCase(), email);
+                }
+            }
+            if (!recipients.isEmpty()) {
+                recipients.keySet().removeAll(recipientRepository.findNotified(JOB_LATE_LOANS, today, recipients.keySet()));
+            }
+            List<String> mailsList = new ArrayList<>(recipients.values());
+            int batches = dispatch(mailsList);
+            recipientRepository.saveAll(recipients.keySet().stream()
+                    .map(email -> NotifiedRecipient.builder().job(JOB_LATE_LOANS).runDate(today).email(email).build())
+                    .collect(Collectors.toList()));
+            notified += mailsList.size();
+
+            loansProcessed.increment(chunk.size());
+            recipientsNotified.increment(mailsList.size());
+            batchesSent.increment(batches);
+
+            if (!chunk.isEmpty()) {
+                checkpoint.setLastLoanId(chunk.get(chunk.size() - 1).getId());
+                checkpoint = checkpointRepository.save(checkpoint);
+            }
+        } while (chunk.size() == chunkSize);
+
+        checkpoint.setCompleted(true);
+        checkpointRepository.save(checkpoint);
+        log.info("late loans notified to {} recipients", notified);
+    }
 
+    private int dispatch(List<String> mailsList) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < mailsList.size(); i += batchSize) {
+            List<String> batch = mailsList.subList(i, Math.min(i + batchSize, mailsList.size()));
+            futures.add(CompletableFuture.runAsync(() -> emailService.sendMails(message, batch), lateLoansMailExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return futures.size();
     }
 }
@@ -0,0 +1,59 @@
+package com.cursoback.libraryapi.service.impl;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.service.BookSearchService;
+import com.cursoback.libraryapi.service.search.BookSearchIndex;
+import com.cursoback.libraryapi.service.search.BookSuggestIndex;
+import com.cursoback.libraryapi.service.search.SearchResult;
+import com.cursoback.libraryapi.service.search.Suggestion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks with the in-memory index and only goes to the database to load the
+ * books of the requested page.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookSearchServiceImpl implements BookSearchService {
+
+    private final BookSearchIndex index;
+    private final BookSuggestIndex suggestIndex;
+    private final BookRepository repository;
+
+    @Override
+    public Page<Book> search(String query, Pageable pageable) {
+        SearchResult result = index.search(query, (int) pageable.getOffset(), pageable.getPageSize());
+        if (result.getIds().isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, result.getTotal());
+        }
+
+        Map<Long, Book> books = repository.findAllById(result.getIds())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = new ArrayList<>(result.getIds().size());
+        for (Long id : result.getIds()) {
+            Book book = books.get(id);
+            if (book != null) {
+                content.add(book);
+            }
+        }
+        return new PageImpl<>(content, pageable, result.getTotal());
+    }
+
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, limit);
+    }
+}
@@ -1,31 +1,153 @@
 package com.cursoback.libraryapi.service.impl;
 
+import com.cursoback.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.repository.BookRepository;
 import com.cursoback.libraryapi.service.BookService;
+import com.cursoback.libraryapi.service.search.BookChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookServiceImpl implements BookService {
+    public static final int MAX_BATCH_SIZE = 5000;
+    private static final int CHUNK_SIZE = 500;
+    private static final String ISBN_CONSTRAINT = "UK_BOOK_ISBN";
+
     private BookRepository repository;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transaction;
 
-    public BookServiceImpl(BookRepository repository){
+    public BookServiceImpl(BookRepository repository, ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager){
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public Book save(Book book) {
-        if(repository.existsByIsbn(book.getIsbn())){
-            throw new BusinessException("Isbn já cadastrado");
+        try {
+            Book saved = repository.saveAndFlush(book);
+            eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, ISBN_CONSTRAINT)) {
+                throw new BusinessException("Isbn já cadastrado");
+            }
+            throw e;
         }
-        return repository.save(book);
+    }
+
+    /**
+     * Each chunk commits on its own. When another request takes one of the
+     * isbns after the lookup, the chunk is rolled back and saved row by row,
+     * reporting the conflicting books as DUPLICATED.
+     */
+    @Override
+    public List<BookBatchResultDTO> saveAll(List<Book> books) {
+        if (books.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("Batch limitado a " + MAX_BATCH_SIZE + " livros");
+        }
+
+        Set<String> isbns = new HashSet<>();
+        books.forEach(book -> {
+            if (book.getIsbn() != null) {
+                isbns.add(book.getIsbn());
+            }
+        });
+        Set<String> takenIsbns = new HashSet<>();
+        for (List<String> chunk : partition(new ArrayList<>(isbns))) {
+            takenIsbns.addAll(repository.findExistingIsbns(chunk));
+        }
+
+        List<BookBatchResultDTO> results = new ArrayList<>(books.size());
+        List<Book> accepted = new ArrayList<>();
+        List<BookBatchResultDTO> acceptedResults = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            BookBatchResultDTO result = BookBatchResultDTO.builder().index(i).isbn(book.getIsbn()).build();
+            if (isBlank(book.getTitle()) || isBlank(book.getAuthor()) || isBlank(book.getIsbn())) {
+                result.setStatus(BookBatchResultDTO.Status.INVALID);
+                result.setError("Titulo, autor e isbn sao obrigatorios");
+            } else if (!takenIsbns.add(book.getIsbn())) {
+                result.setStatus(BookBatchResultDTO.Status.DUPLICATED);
+                result.setError("Isbn já cadastrado");
+            } else {
+                book.setId(null);
+                result.setStatus(BookBatchResultDTO.Status.CREATED);
+                accepted.add(book);
+                acceptedResults.add(result);
+            }
+            results.add(result);
+        }
+
+        List<List<BookBatchResultDTO>> resultChunks = partition(acceptedResults);
+        List<List<Book>> chunks = partition(accepted);
+        for (int i = 0; i < chunks.size(); i++) {
+            saveChunk(chunks.get(i), resultChunks.get(i));
+        }
+        return results;
+    }
+
+    private void saveChunk(List<Book> chunk, List<BookBatchResultDTO> chunkResults) {
+        try {
+            transaction.execute(status -> {
+                repository.saveAll(chunk);
+                repository.flush();
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolationOf(e, ISBN_CONSTRAINT)) {
+                throw e;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                saveRow(chunk.get(i), chunkResults.get(i));
+            }
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            created(chunk.get(i), chunkResults.get(i));
+        }
+    }
+
+    private void saveRow(Book book, BookBatchResultDTO result) {
+        // the rolled back chunk left generated ids and versions behind
+        book.setId(null);
+        book.setVersion(null);
+        try {
+            transaction.execute(status -> repository.saveAndFlush(book));
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolationOf(e, ISBN_CONSTRAINT)) {
+                throw e;
+            }
+            result.setStatus(BookBatchResultDTO.Status.DUPLICATED);
+            result.setError("Isbn já cadastrado");
+            return;
+        }
+        created(book, result);
+    }
+
+    private void created(Book book, BookBatchResultDTO result) {
+        result.setId(book.getId());
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
     }
 
     @Override
@@ -39,6 +161,7 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Book id cant be null");
         }
         this.repository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.removed(book));
 
     }
 
@@ -47,7 +170,9 @@ public class BookServiceImpl implements BookService {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id cant be null");
         }
-        return this.repository.save(book);
+        Book updated = this.repository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(updated));
+        return updated;
     }
 
     @Override
@@ -62,8 +187,31 @@ public class BookServiceImpl implements BookService {
         return repository.findAll(example, pageRequest);
     }
 
+    @Override
+    public Slice<Book> findAfter(Book filter, Long after, int size) {
+        return repository.findNextPage(
+                after,
+                filter.getTitle(),
+                filter.getAuthor(),
+                filter.getIsbn(),
+                PageRequest.of(0, size, Sort.by("id"))
+        );
+    }
+
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
         return repository.findByIsbn(isbn);
     }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static <T> List<List<T>> partition(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
 }
@@ -0,0 +1,22 @@
+package com.cursoback.libraryapi.service.impl;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    static boolean isViolationOf(DataIntegrityViolationException exception, String constraint) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof ConstraintViolationException) {
+                String name = ((ConstraintViolationException) cause).getConstraintName();
+                return name != null && name.toUpperCase().contains(constraint.toUpperCase());
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+}
@@ -1,32 +1,41 @@
 package com.cursoback.libraryapi.service.impl;
 
+import com.cursoback.libraryapi.model.entity.EmailOutbox;
+import com.cursoback.libraryapi.model.repository.EmailOutboxRepository;
 import com.cursoback.libraryapi.service.EmailService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Queues the mail in the outbox table, inside the caller's transaction when
+ * there is one. Delivery happens later on the EmailOutboxDispatcher.
+ */
 @Service
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
-    @Value("${application.mail.default-sender}")
-    private String rementent;
-
-    private final JavaMailSender javaMailSender;
+    private final EmailOutboxRepository repository;
 
     @Override
+    @Transactional
+    @Timed("mail.enqueue")
     public void sendMails(String message, List<String> mailsList) {
-        String[] mails = mailsList.toArray(new String[mailsList.size()]);
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setFrom(rementent);
-        mailMessage.setSubject("Livro com emprestimo atrasado");
-        mailMessage.setText(message);
-        mailMessage.setTo(mails);
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox mail = EmailOutbox.builder()
+                .subject("Livro com emprestimo atrasado")
+                .message(message)
+                .recipients(String.join(",", mailsList))
+                .status(EmailOutbox.Status.PENDING)
+                .attempts(0)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
 
-        javaMailSender.send(mailMessage);
+        repository.save(mail);
     }
 }
@@ -0,0 +1,158 @@
+package com.cursoback.libraryapi.service.impl;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import com.cursoback.libraryapi.service.ExportFormat;
+import com.cursoback.libraryapi.service.ExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams whole tables row by row straight to the output. Each row is
+ * detached once written so the persistence context, and the heap, stay
+ * flat whatever the table size. The session ignores the second level cache
+ * while streaming, so an export does not evict the hot books; the query hint
+ * alone only covers opening the scroll, not the rows read afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ExportServiceImpl implements ExportService {
+
+    private static final String[] BOOK_COLUMNS = {"id", "title", "author", "isbn"};
+    private static final String[] LOAN_COLUMNS =
+            {"id", "customer", "customerEmail", "loanDate", "returned", "bookId", "isbn"};
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void exportBooks(ExportFormat format, OutputStream out) throws IOException {
+        bypassSecondLevelCache();
+        try (Stream<Book> books = bookRepository.streamAll();
+             RowWriter writer = rowWriter(format, out, BOOK_COLUMNS)) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                writer.row(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+                entityManager.detach(book);
+            }
+        }
+    }
+
+    @Override
+    public void exportLoans(ExportFormat format, OutputStream out) throws IOException {
+        bypassSecondLevelCache();
+        try (Stream<Loan> loans = loanRepository.streamAllWithBook();
+             RowWriter writer = rowWriter(format, out, LOAN_COLUMNS)) {
+            Iterator<Loan> iterator = loans.iterator();
+            while (iterator.hasNext()) {
+                Loan loan = iterator.next();
+                Book book = loan.getBook();
+                writer.row(loan.getId(), loan.getCustomer(), loan.getCustomerEmail(),
+                        loan.getLoanDate() == null ? null : loan.getLoanDate().toString(),
+                        loan.getReturned(), book.getId(), book.getIsbn());
+                entityManager.detach(loan);
+                entityManager.detach(book);
+            }
+        }
+    }
+
+    private void bypassSecondLevelCache() {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+    }
+
+    private RowWriter rowWriter(ExportFormat format, OutputStream out, String[] columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            return new CsvRowWriter(writer, columns);
+        }
+        return new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer), columns);
+    }
+
+    private interface RowWriter extends Closeable {
+        void row(Object... values) throws IOException;
+    }
+
+    private static class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final String[] columns;
+
+        NdjsonRowWriter(JsonGenerator generator, String[] columns) {
+            this.generator = generator;
+            this.columns = columns;
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeObjectField(columns[i], values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer, String[] columns) throws IOException {
+            this.writer = writer;
+            row((Object[]) columns);
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -5,17 +5,30 @@ import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
 import com.cursoback.libraryapi.model.repository.LoanRepository;
+import com.cursoback.libraryapi.model.repository.VersionSummary;
 import com.cursoback.libraryapi.service.LoanService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class LoanServiceImpl implements LoanService {
+    private static final int LOAN_DAYS = 4;
+    private static final String OPEN_LOAN_CONSTRAINT = "UK_LOAN_OPEN_BOOK";
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+
     private final LoanRepository repository;
 
     public LoanServiceImpl(LoanRepository repository) {
@@ -24,10 +37,7 @@ public class LoanServiceImpl implements LoanService {
 
     @Override
     public Loan save(Loan loan) {
-        if(repository.existsByBookAndNotReturned(loan.getBook())){
-            throw new BusinessException("Book already loaned");
-        }
-        return repository.save(loan);
+        return saveOpenLoan(loan);
     }
 
     @Override
@@ -35,9 +45,56 @@ public class LoanServiceImpl implements LoanService {
         return repository.findById(id);
     }
 
+    /**
+     * Retries a version conflict against the current row, reapplying the
+     * requested returned flag, and gives up after MAX_UPDATE_ATTEMPTS.
+     */
     @Override
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Loan attempt = loan;
+        for (int i = 1; ; i++) {
+            try {
+                return updateIfUnchanged(attempt);
+            } catch (OptimisticLockingFailureException e) {
+                if (i >= MAX_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+                backoff(i);
+                Loan current = repository.findById(loan.getId())
+                        .orElseThrow(() -> new EmptyResultDataAccessException(1));
+                current.setReturned(loan.getReturned());
+                attempt = current;
+            }
+        }
+    }
+
+    /**
+     * Only the returned flag changes, so it is written with one update that
+     * is conditional on the loan's version instead of a read and a merge.
+     */
+    @Override
+    public Loan updateIfUnchanged(Loan loan) {
+        Long id = loan.getId();
+        boolean returned = Boolean.TRUE.equals(loan.getReturned());
+        try {
+            int updated = returned
+                    ? repository.markReturned(id, loan.getVersion())
+                    : repository.markNotReturned(id, loan.getVersion());
+            if (updated == 0) {
+                if (!repository.existsById(id)) {
+                    throw new EmptyResultDataAccessException("Loan " + id + " not found", 1);
+                }
+                throw new ObjectOptimisticLockingFailureException(Loan.class, id);
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, OPEN_LOAN_CONSTRAINT)) {
+                throw new BusinessException("Book already loaned");
+            }
+            throw e;
+        }
+        loan.setVersion(loan.getVersion() + 1);
+        loan.setOpenBookId(returned || loan.getBook() == null ? null : loan.getBook().getId());
+        return loan;
     }
 
     @Override
@@ -49,15 +106,64 @@ public class LoanServiceImpl implements LoanService {
         );
     }
 
+    @Override
+    public Slice<Loan> findAfter(LoanFilterDTO filterDTO, Long after, int size) {
+        return repository.findNextPageByBookIsbnOrCustomer(
+                after,
+                filterDTO.getIsbn(),
+                filterDTO.getCustomer(),
+                PageRequest.of(0, size, Sort.by("id"))
+        );
+    }
+
     @Override
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
+    @Override
+    public VersionSummary summarize(LoanFilterDTO filterDTO) {
+        return repository.summarizeByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer());
+    }
+
+    @Override
+    public VersionSummary summarizeLoansByBook(Book book) {
+        return repository.summarizeByBook(book);
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
         return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
     }
+
+    @Override
+    public List<Loan> getLateLoansAfter(Long after, int size) {
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
+        return repository.findLateLoansAfter(threeDaysAgo, after, PageRequest.of(0, size));
+    }
+
+    /**
+     * Availability is enforced by the unique index over open loans, so the
+     * insert (or reopening update) is the check: no count query beforehand
+     * and no window for two concurrent requests to lend the same book.
+     */
+    private Loan saveOpenLoan(Loan loan) {
+        try {
+            return repository.saveAndFlush(loan);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, OPEN_LOAN_CONSTRAINT)) {
+                throw new BusinessException("Book already loaned");
+            }
+            throw e;
+        }
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(attempt * 5 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
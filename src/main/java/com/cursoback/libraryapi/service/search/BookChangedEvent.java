@@ -0,0 +1,23 @@
+package com.cursoback.libraryapi.service.search;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookChangedEvent {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final boolean removed;
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book.getId(), book.getTitle(), book.getAuthor(), false);
+    }
+
+    public static BookChangedEvent removed(Book book) {
+        return new BookChangedEvent(book.getId(), book.getTitle(), book.getAuthor(), true);
+    }
+}
@@ -0,0 +1,14 @@
+package com.cursoback.libraryapi.service.search;
+
+/**
+ * An in-memory structure derived from the book table and kept current by
+ * {@link BookIndexMaintainer}.
+ */
+public interface BookIndex {
+
+    void put(long id, String title, String author);
+
+    void remove(long id);
+
+    void clear();
+}
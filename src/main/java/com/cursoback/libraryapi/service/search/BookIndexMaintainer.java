@@ -0,0 +1,103 @@
+package com.cursoback.libraryapi.service.search;
+
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Loads every {@link BookIndex} from the book table once the application is
+ * up, then applies each committed book change to them. Changes committed
+ * while a rebuild streams the table are held back and applied after it, so
+ * an older row read by the rebuild cannot overwrite them.
+ */
+@Component
+@Slf4j
+public class BookIndexMaintainer {
+
+    private final List<BookIndex> indexes;
+    private final BookRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Lock lock = new ReentrantLock();
+    private List<BookChangedEvent> pending;
+
+    public BookIndexMaintainer(List<BookIndex> indexes,
+                               BookRepository repository,
+                               PlatformTransactionManager transactionManager) {
+        this.indexes = indexes;
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            if (pending != null) {
+                pending.add(event);
+            } else {
+                apply(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(BookChangedEvent event) {
+        for (BookIndex index : indexes) {
+            if (event.isRemoved()) {
+                index.remove(event.getId());
+            } else {
+                index.put(event.getId(), event.getTitle(), event.getAuthor());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.lock();
+        try {
+            pending = new ArrayList<>();
+            indexes.forEach(BookIndex::clear);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Long indexed = readOnlyTransaction.execute(status -> load());
+            log.info("Indexed {} books in {} ms", indexed, System.currentTimeMillis() - start);
+        } finally {
+            lock.lock();
+            try {
+                pending.forEach(this::apply);
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long load() {
+        long count = 0;
+        try (Stream<BookRepository.IndexEntry> entries = repository.streamIndexEntries()) {
+            for (BookRepository.IndexEntry entry : (Iterable<BookRepository.IndexEntry>) entries::iterator) {
+                for (BookIndex index : indexes) {
+                    index.put(entry.getId(), entry.getTitle(), entry.getAuthor());
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+}
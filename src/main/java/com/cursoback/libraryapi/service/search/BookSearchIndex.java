@@ -0,0 +1,167 @@
+package com.cursoback.libraryapi.service.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over book titles and authors. A query matches books that
+ * contain every query term; matches are ranked by term weight (title
+ * occurrences count double) times inverse document frequency. Only the
+ * posting list of the rarest term is walked, so the cost follows the
+ * size of the answer rather than the size of the catalog.
+ */
+@Component
+public class BookSearchIndex implements BookIndex {
+
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+
+    private static final Comparator<Hit> RANKING = Comparator
+            .comparingDouble((Hit hit) -> hit.score)
+            .reversed()
+            .thenComparingLong(hit -> hit.id);
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, String[]> terms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void put(long id, String title, String author) {
+        Map<String, Integer> weights = new HashMap<>();
+        TextNormalizer.tokenize(title).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        TextNormalizer.tokenize(author).forEach(term -> weights.merge(term, AUTHOR_WEIGHT, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            removeTerms(id);
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).put(id, weight));
+            terms.put(id, weights.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeTerms(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            terms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(query)));
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return new SearchResult(Collections.emptyList(), 0);
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            double[] idf = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                idf[i] = Math.log(1 + (double) terms.size() / lists.get(i).size());
+            }
+
+            int wanted = offset + limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, wanted), RANKING.reversed());
+            long total = 0;
+            PostingList rarest = lists.get(0);
+            candidates:
+            for (int p = 0; p < rarest.size(); p++) {
+                long id = rarest.idAt(p);
+                double score = rarest.weightAt(p) * idf[0];
+                for (int i = 1; i < lists.size(); i++) {
+                    int position = lists.get(i).indexOf(id);
+                    if (position < 0) {
+                        continue candidates;
+                    }
+                    score += lists.get(i).weightAt(position) * idf[i];
+                }
+                total++;
+                if (wanted > 0) {
+                    top.offer(new Hit(id, score));
+                    if (top.size() > wanted) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(RANKING);
+            List<Long> ids = new ArrayList<>(limit);
+            for (int i = offset; i < ranked.size(); i++) {
+                ids.add(ranked.get(i).id);
+            }
+            return new SearchResult(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeTerms(long id) {
+        String[] previous = terms.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous) {
+            PostingList list = postings.get(term);
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static final class Hit {
+        final long id;
+        final double score;
+
+        Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.cursoback.libraryapi.service.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted map of normalized title and author phrases for autocomplete. Every
+ * word of a phrase starts a key, so "holm" suggests "Sherlock Holmes". A
+ * lookup is one range seek over the matching keys, keeping the k phrases
+ * shared by the most books in a bounded heap; ties go alphabetically.
+ */
+@Component
+public class BookSuggestIndex implements BookIndex {
+
+    private static final char SEPARATOR = '\u0001';
+    private static final Comparator<Phrase> RANK = Comparator.<Phrase>comparingInt(phrase -> phrase.books)
+            .thenComparing(phrase -> phrase.normalized, Comparator.reverseOrder())
+            .thenComparing(phrase -> phrase.field, Comparator.reverseOrder());
+
+    private final NavigableMap<String, Phrase> keys = new TreeMap<>();
+    private final Map<String, Phrase> phrases = new HashMap<>();
+    private final Map<Long, Phrase[]> books = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void put(long id, String title, String author) {
+        lock.writeLock().lock();
+        try {
+            release(books.remove(id));
+            List<Phrase> added = new ArrayList<>(2);
+            acquire(title, Suggestion.Field.TITLE, added);
+            acquire(author, Suggestion.Field.AUTHOR, added);
+            books.put(id, added.toArray(new Phrase[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            release(books.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            keys.clear();
+            phrases.clear();
+            books.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = String.join(" ", TextNormalizer.tokenize(prefix));
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        if (normalized.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Phrase> seen = new HashSet<>();
+            PriorityQueue<Phrase> top = new PriorityQueue<>(limit + 1, RANK);
+            for (Phrase phrase : keys.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+                if (seen.add(phrase)) {
+                    top.offer(phrase);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            while (!top.isEmpty()) {
+                Phrase phrase = top.poll();
+                suggestions.add(new Suggestion(phrase.text, phrase.field));
+            }
+            Collections.reverse(suggestions);
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void acquire(String text, Suggestion.Field field, List<Phrase> added) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        String normalized = String.join(" ", tokens);
+        String phraseKey = field.name() + SEPARATOR + normalized;
+        Phrase phrase = phrases.get(phraseKey);
+        if (phrase == null) {
+            phrase = new Phrase(phraseKey, normalized, text.trim(), field, wordStarts(tokens, phraseKey));
+            phrases.put(phraseKey, phrase);
+            for (String key : phrase.keys) {
+                keys.put(key, phrase);
+            }
+        }
+        phrase.books++;
+        added.add(phrase);
+    }
+
+    private void release(Phrase[] previous) {
+        if (previous == null) {
+            return;
+        }
+        for (Phrase phrase : previous) {
+            if (--phrase.books == 0) {
+                phrases.remove(phrase.key);
+                for (String key : phrase.keys) {
+                    keys.remove(key);
+                }
+            }
+        }
+    }
+
+    private static String[] wordStarts(List<String> tokens, String phraseKey) {
+        String[] starts = new String[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            starts[i] = String.join(" ", tokens.subList(i, tokens.size())) + SEPARATOR + phraseKey;
+        }
+        return starts;
+    }
+
+    private static final class Phrase {
+        final String key;
+        final String normalized;
+        final String text;
+        final Suggestion.Field field;
+        final String[] keys;
+        int books;
+
+        Phrase(String key, String normalized, String text, Suggestion.Field field, String[] keys) {
+            this.key = key;
+            this.normalized = normalized;
+            this.text = text;
+            this.field = field;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.cursoback.libraryapi.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Book ids containing one term, kept sorted with the term weight of each
+ * book alongside. Ids are mostly assigned in increasing order, so inserts
+ * are usually a plain append.
+ */
+final class PostingList {
+
+    private long[] ids = new long[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long idAt(int position) {
+        return ids[position];
+    }
+
+    int weightAt(int position) {
+        return weights[position];
+    }
+
+    int indexOf(long id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    void put(long id, int weight) {
+        int position = size > 0 && ids[size - 1] < id ? -(size + 1) : indexOf(id);
+        if (position >= 0) {
+            weights[position] = weight;
+            return;
+        }
+        position = -(position + 1);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(weights, position, weights, position + 1, size - position);
+        ids[position] = id;
+        weights[position] = weight;
+        size++;
+    }
+
+    void remove(long id) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+        size--;
+    }
+}
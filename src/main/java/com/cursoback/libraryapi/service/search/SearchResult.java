@@ -0,0 +1,13 @@
+package com.cursoback.libraryapi.service.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+public class SearchResult {
+    private final List<Long> ids;
+    private final long total;
+}
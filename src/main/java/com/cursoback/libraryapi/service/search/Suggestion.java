@@ -0,0 +1,14 @@
+package com.cursoback.libraryapi.service.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class Suggestion {
+
+    public enum Field {TITLE, AUTHOR}
+
+    private final String text;
+    private final Field field;
+}
@@ -0,0 +1,42 @@
+create sequence book_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    constraint pk_book primary key (id)
+);
+
+create table loan (
+    id bigint auto_increment not null,
+    customer varchar(255),
+    customer_email varchar(255),
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    constraint pk_loan primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+create table notification_checkpoint (
+    job varchar(255) not null,
+    run_date date,
+    last_loan_id bigint,
+    completed boolean,
+    constraint pk_notification_checkpoint primary key (job)
+);
+
+create table email_outbox (
+    id bigint auto_increment not null,
+    subject varchar(255),
+    message varchar(4000),
+    recipients varchar(8000),
+    status varchar(255),
+    attempts integer,
+    next_attempt_at timestamp,
+    created_at timestamp,
+    sent_at timestamp,
+    last_error varchar(1000),
+    constraint pk_email_outbox primary key (id)
+);
@@ -0,0 +1,14 @@
+-- existsByIsbn / findByIsbn / findExistingIsbns
+create unique index uk_book_isbn on book (isbn);
+
+-- existsByBookAndNotReturned / findByBook
+create index idx_loan_book_returned on loan (id_book, returned);
+
+-- findByLoanDateLessThanAndNotReturned / findLateLoansAfter
+create index idx_loan_date_returned on loan (loan_date, returned);
+
+-- findByBookIsbnOrCustomer customer filter
+create index idx_loan_customer on loan (customer);
+
+-- EmailOutboxDispatcher polling
+create index idx_email_outbox_status_next on email_outbox (status, next_attempt_at);
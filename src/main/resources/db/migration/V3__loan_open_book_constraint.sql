@@ -0,0 +1,7 @@
+-- open_book_id holds id_book while the loan is open and null once it is
+-- returned: a unique index over it allows a single open loan per book.
+alter table loan add column open_book_id bigint;
+
+update loan set open_book_id = id_book where returned is null or returned = false;
+
+create unique index uk_loan_open_book on loan (open_book_id);
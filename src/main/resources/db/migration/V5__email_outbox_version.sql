@@ -0,0 +1 @@
+alter table email_outbox add column version bigint default 0 not null;
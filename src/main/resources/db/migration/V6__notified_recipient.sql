@@ -0,0 +1,11 @@
+-- Recipients already mailed by a notification run, so a run resumed after a
+-- crash skips them. Rows of older runs are deleted when a new run starts.
+create table notified_recipient (
+    id bigint auto_increment not null,
+    job varchar(255) not null,
+    run_date date not null,
+    email varchar(255) not null,
+    constraint pk_notified_recipient primary key (id)
+);
+
+create unique index uk_notified_recipient on notified_recipient (job, run_date, email);
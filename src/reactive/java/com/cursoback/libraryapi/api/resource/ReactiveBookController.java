@@ -0,0 +1,86 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.api.ETags;
+import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.api.mapper.BookMapper;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.repository.ReactiveBookRepository;
+import com.cursoback.libraryapi.model.repository.ReactiveLoanRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the book reads of {@link BookController}, with
+ * the same DTOs and paging parameters. Clients asking for
+ * {@code application/stream+json} get the page content streamed one book per
+ * line instead of a {@link Page}.
+ */
+@RestController
+@RequestMapping("/api/rx/books")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveBookController {
+
+    private final ReactiveBookRepository bookRepository;
+    private final ReactiveLoanRepository loanRepository;
+
+    @GetMapping
+    public Mono<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest){
+        Book filter = BookMapper.toEntity(dto);
+        return bookRepository.findAll(filter, pageRequest)
+                .map(BookMapper::toDto)
+                .collectList()
+                .zipWith(bookRepository.count(filter),
+                        (content, total) -> new PageImpl<BookDTO>(content, pageRequest, total));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<BookDTO> stream(BookDTO dto, Pageable pageRequest){
+        return bookRepository.findAll(BookMapper.toEntity(dto), pageRequest).map(BookMapper::toDto);
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<BookDTO>> get(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return findBook(id).map(book -> {
+            String etag = ETags.of(book.getId(), book.getVersion());
+            if (ETags.notModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<BookDTO>build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(BookMapper.toDto(book));
+        });
+    }
+
+    @GetMapping("{id}/loans")
+    public Mono<Page<LoanDTO>> loansByBook(@PathVariable Long id, Pageable pageable){
+        return findBook(id).flatMap(book -> loanRepository.findByBook(book.getId(), pageable)
+                .map(LoanMapper::toDto)
+                .collectList()
+                .zipWith(loanRepository.countByBook(book.getId()),
+                        (content, total) -> new PageImpl<LoanDTO>(content, pageable, total)));
+    }
+
+    @GetMapping(value = "{id}/loans", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<LoanDTO> streamLoansByBook(@PathVariable Long id, Pageable pageable){
+        return findBook(id).flatMapMany(book -> loanRepository.findByBook(book.getId(), pageable))
+                .map(LoanMapper::toDto);
+    }
+
+    private Mono<Book> findBook(Long id) {
+        return bookRepository.findById(id)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND))));
+    }
+}
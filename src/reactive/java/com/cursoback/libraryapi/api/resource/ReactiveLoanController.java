@@ -0,0 +1,44 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.api.dto.LoanFilterDTO;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
+import com.cursoback.libraryapi.model.repository.ReactiveLoanRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@code GET /api/loans}.
+ */
+@RestController
+@RequestMapping("/api/rx/loans")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveLoanController {
+
+    private final ReactiveLoanRepository repository;
+
+    @GetMapping
+    public Mono<Page<LoanDTO>> find(LoanFilterDTO dto, Pageable pageable) {
+        return repository.findByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), pageable)
+                .map(LoanMapper::toDto)
+                .collectList()
+                .zipWith(repository.countByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer()),
+                        (content, total) -> new PageImpl<LoanDTO>(content, pageable, total));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<LoanDTO> stream(LoanFilterDTO dto, Pageable pageable) {
+        return repository.findByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), pageable)
+                .map(LoanMapper::toDto);
+    }
+}
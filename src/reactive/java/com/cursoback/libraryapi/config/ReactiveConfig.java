@@ -0,0 +1,64 @@
+package com.cursoback.libraryapi.config;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * R2DBC access for the read-only endpoints of the {@code reactive} profile.
+ * The connection factory opens the same database as the JDBC data source,
+ * so JPA writes are visible to the reactive reads. The R2DBC and Reactor
+ * jars, and the {@code src/reactive} source roots that hold these classes
+ * and their tests, are only built with {@code mvn -P reactive}.
+ * <p>
+ * r2dbc-h2 runs each statement on the subscribing thread, so the
+ * repositories subscribe on {@link #r2dbcScheduler}, one thread per pooled
+ * connection, to keep queries off the servlet threads.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(DataSourceProperties dataSource,
+            @Value("${application.reactive.pool.initial-size:4}") int initialSize,
+            @Value("${application.reactive.pool.max-size:16}") int maxSize) {
+        String url = dataSource.determineUrl();
+        if (url == null || !url.startsWith(H2_PREFIX)) {
+            throw new IllegalStateException("The reactive profile supports H2 databases only, got " + url);
+        }
+        H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_PREFIX.length()))
+                .username(dataSource.determineUsername())
+                .password(dataSource.determinePassword())
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration))
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler r2dbcScheduler(
+            @Value("${application.reactive.pool.max-size:16}") int maxSize,
+            @Value("${application.reactive.queue-size:1000}") int queueSize) {
+        return Schedulers.newBoundedElastic(maxSize, queueSize, "r2dbc-h2");
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
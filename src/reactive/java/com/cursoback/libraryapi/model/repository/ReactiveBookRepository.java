@@ -0,0 +1,104 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only book queries over R2DBC for the {@code reactive} profile.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveBookRepository {
+
+    private static final String COLUMNS = " select id, title, author, isbn, version from book ";
+    private static final Map<String, String> SORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "id");
+        SORT_COLUMNS.put("title", "title");
+        SORT_COLUMNS.put("author", "author");
+        SORT_COLUMNS.put("isbn", "isbn");
+    }
+
+    private final DatabaseClient client;
+    @Qualifier("r2dbcScheduler")
+    private final Scheduler r2dbcScheduler;
+
+    public Mono<Book> findById(long id) {
+        return client.execute(COLUMNS + " where id = :id ")
+                .bind("id", id)
+                .map((row, metadata) -> toBook(row))
+                .one()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    /**
+     * Same filter as the JPA listing: every non-null field of the example
+     * must be contained in the book's, ignoring case.
+     */
+    public Flux<Book> findAll(Book filter, Pageable pageable) {
+        return bindFilter(client.execute(COLUMNS + where(filter)
+                        + ReactiveQueries.orderBy(pageable.getSort(), SORT_COLUMNS, "id")
+                        + ReactiveQueries.page(pageable)), filter)
+                .map((row, metadata) -> toBook(row))
+                .all()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    public Mono<Long> count(Book filter) {
+        return bindFilter(client.execute(" select count(*) as total from book " + where(filter)), filter)
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    private static String where(Book filter) {
+        StringBuilder where = new StringBuilder(" where 1 = 1 ");
+        if (filter.getTitle() != null) {
+            where.append(" and lower(title) like :title escape '\\' ");
+        }
+        if (filter.getAuthor() != null) {
+            where.append(" and lower(author) like :author escape '\\' ");
+        }
+        if (filter.getIsbn() != null) {
+            where.append(" and lower(isbn) like :isbn escape '\\' ");
+        }
+        return where.toString();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFilter(DatabaseClient.GenericExecuteSpec spec, Book filter) {
+        if (filter.getTitle() != null) {
+            spec = spec.bind("title", ReactiveQueries.contains(filter.getTitle()));
+        }
+        if (filter.getAuthor() != null) {
+            spec = spec.bind("author", ReactiveQueries.contains(filter.getAuthor()));
+        }
+        if (filter.getIsbn() != null) {
+            spec = spec.bind("isbn", ReactiveQueries.contains(filter.getIsbn()));
+        }
+        return spec;
+    }
+
+    private static Book toBook(Row row) {
+        return Book.builder()
+                .id(row.get("id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
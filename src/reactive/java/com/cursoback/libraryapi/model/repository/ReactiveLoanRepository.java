@@ -0,0 +1,105 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only loan queries over R2DBC for the {@code reactive} profile. Loans
+ * come with their book in one statement, like the {@code join fetch}
+ * queries of {@link LoanRepository}.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveLoanRepository {
+
+    private static final String COLUMNS = " select l.id, l.customer, l.customer_email, l.loan_date, " +
+            "l.returned, l.version, b.id as book_id, b.title, b.author, b.isbn, b.version as book_version " +
+            "from loan l join book b on b.id = l.id_book ";
+    private static final String BY_ISBN_OR_CUSTOMER = " where b.isbn = :isbn or l.customer = :customer ";
+    private static final Map<String, String> SORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "l.id");
+        SORT_COLUMNS.put("customer", "l.customer");
+        SORT_COLUMNS.put("loanDate", "l.loan_date");
+    }
+
+    private final DatabaseClient client;
+    @Qualifier("r2dbcScheduler")
+    private final Scheduler r2dbcScheduler;
+
+    public Flux<Loan> findByBook(long bookId, Pageable pageable) {
+        return client.execute(COLUMNS + " where l.id_book = :book "
+                        + ReactiveQueries.orderBy(pageable.getSort(), SORT_COLUMNS, "l.id")
+                        + ReactiveQueries.page(pageable))
+                .bind("book", bookId)
+                .map((row, metadata) -> toLoan(row))
+                .all()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    public Mono<Long> countByBook(long bookId) {
+        return client.execute(" select count(*) as total from loan where id_book = :book ")
+                .bind("book", bookId)
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    public Flux<Loan> findByBookIsbnOrCustomer(String isbn, String customer, Pageable pageable) {
+        return bindFilter(client.execute(COLUMNS + BY_ISBN_OR_CUSTOMER
+                        + ReactiveQueries.orderBy(pageable.getSort(), SORT_COLUMNS, "l.id")
+                        + ReactiveQueries.page(pageable)), isbn, customer)
+                .map((row, metadata) -> toLoan(row))
+                .all()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    public Mono<Long> countByBookIsbnOrCustomer(String isbn, String customer) {
+        return bindFilter(client.execute(" select count(*) as total from loan l join book b on b.id = l.id_book "
+                        + BY_ISBN_OR_CUSTOMER), isbn, customer)
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .subscribeOn(r2dbcScheduler);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFilter(DatabaseClient.GenericExecuteSpec spec,
+            String isbn, String customer) {
+        spec = isbn == null ? spec.bindNull("isbn", String.class) : spec.bind("isbn", isbn);
+        return customer == null ? spec.bindNull("customer", String.class) : spec.bind("customer", customer);
+    }
+
+    private static Loan toLoan(Row row) {
+        Book book = Book.builder()
+                .id(row.get("book_id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .version(row.get("book_version", Long.class))
+                .build();
+        return Loan.builder()
+                .id(row.get("id", Long.class))
+                .customer(row.get("customer", String.class))
+                .customerEmail(row.get("customer_email", String.class))
+                .loanDate(row.get("loan_date", LocalDate.class))
+                .returned(row.get("returned", Boolean.class))
+                .version(row.get("version", Long.class))
+                .book(book)
+                .build();
+    }
+}
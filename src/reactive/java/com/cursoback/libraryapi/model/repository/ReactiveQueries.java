@@ -0,0 +1,44 @@
+package com.cursoback.libraryapi.model.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * SQL fragments shared by the R2DBC repositories. Sort properties are
+ * resolved against a fixed map of columns, so request parameters never reach
+ * the statement text.
+ */
+final class ReactiveQueries {
+
+    private ReactiveQueries() {
+    }
+
+    static String orderBy(Sort sort, Map<String, String> columns, String defaultOrder) {
+        String order = sort.stream()
+                .filter(o -> columns.containsKey(o.getProperty()))
+                .map(o -> columns.get(o.getProperty()) + (o.isAscending() ? " asc" : " desc"))
+                .collect(Collectors.joining(", "));
+        return " order by " + (order.isEmpty() ? defaultOrder : order + ", " + defaultOrder);
+    }
+
+    static String page(Pageable pageable) {
+        return pageable.isPaged()
+                ? " limit " + pageable.getPageSize() + " offset " + pageable.getOffset()
+                : "";
+    }
+
+    /**
+     * Case-insensitive "contains" pattern, like the {@code ExampleMatcher}
+     * used by the JPA listing.
+     */
+    static String contains(String value) {
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
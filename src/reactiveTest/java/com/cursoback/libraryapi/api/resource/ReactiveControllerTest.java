@@ -0,0 +1,198 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.api.ETags;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import com.cursoback.libraryapi.model.repository.ReactiveBookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReactiveControllerTest {
+
+    static String BOOK_API = "/api/rx/books";
+    static String LOAN_API = "/api/rx/loans";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    ReactiveBookRepository reactiveBookRepository;
+
+    String customer;
+    List<Book> books = new ArrayList<>();
+    List<Loan> loans = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp(){
+        customer = "rx-" + System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            Book book = bookRepository.save(Book.builder().title("Reativo " + customer + " " + i)
+                    .author("Fulano").isbn(customer + "-" + i).build());
+            books.add(book);
+            loans.add(loanRepository.save(Loan.builder().book(book).customer(customer)
+                    .customerEmail(customer + "@email.com").loanDate(LocalDate.now()).build()));
+        }
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteAll(loanRepository.findAllById(
+                loans.stream().map(Loan::getId).collect(Collectors.toList())));
+        bookRepository.deleteAll(bookRepository.findAllById(
+                books.stream().map(Book::getId).collect(Collectors.toList())));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros com o mesmo contrato de paginação da API MVC")
+    public void findBooksTest() throws Exception {
+        performAsync(MockMvcRequestBuilders.get(BOOK_API)
+                .param("title", customer.toUpperCase())
+                .param("page", "0").param("size", "2").param("sort", "isbn,desc")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("content[0].isbn").value(customer + "-2"))
+                .andExpect(jsonPath("totalElements").value(3))
+                .andExpect(jsonPath("pageable.pageSize").value(2))
+                .andExpect(jsonPath("pageable.pageNumber").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros um por linha em application/stream+json")
+    public void streamBooksTest() throws Exception {
+        String body = performAsync(MockMvcRequestBuilders.get(BOOK_API)
+                .param("author", "fulano").param("isbn", customer)
+                .param("page", "0").param("size", "10")
+                .accept(MediaType.APPLICATION_STREAM_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.trim().split("\n")).hasSize(3);
+        assertThat(body).contains(customer + "-0", customer + "-1", customer + "-2");
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro com ETag e responder 304 quando não mudou")
+    public void getBookTest() throws Exception {
+        Book book = books.get(0);
+        String etag = ETags.of(book.getId(), book.getVersion());
+
+        performAsync(MockMvcRequestBuilders.get(BOOK_API + "/" + book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("id").value(book.getId()))
+                .andExpect(jsonPath("isbn").value(book.getIsbn()));
+
+        performAsync(MockMvcRequestBuilders.get(BOOK_API + "/" + book.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 para livro inexistente")
+    public void bookNotFoundTest() throws Exception {
+        performAsync(MockMvcRequestBuilders.get(BOOK_API + "/" + Integer.MAX_VALUE))
+                .andExpect(status().isNotFound());
+
+        performAsync(MockMvcRequestBuilders.get(BOOK_API + "/" + Integer.MAX_VALUE + "/loans"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve listar os empréstimos de um livro")
+    public void loansByBookTest() throws Exception {
+        Book book = books.get(1);
+
+        performAsync(MockMvcRequestBuilders.get(BOOK_API + "/" + book.getId() + "/loans")
+                .param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(loans.get(1).getId()))
+                .andExpect(jsonPath("content[0].isbn").value(book.getIsbn()))
+                .andExpect(jsonPath("content[0].email").value(customer + "@email.com"))
+                .andExpect(jsonPath("content[0].book.title").value(book.getTitle()))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos por isbn ou cliente")
+    public void findLoansTest() throws Exception {
+        performAsync(MockMvcRequestBuilders.get(LOAN_API)
+                .param("customer", customer).param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(loans.get(2).getId()))
+                .andExpect(jsonPath("totalElements").value(3));
+
+        performAsync(MockMvcRequestBuilders.get(LOAN_API)
+                .param("isbn", customer + "-0").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].customer").value(customer));
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os empréstimos filtrados em application/stream+json")
+    public void streamLoansTest() throws Exception {
+        String body = performAsync(MockMvcRequestBuilders.get(LOAN_API)
+                .param("customer", customer).param("page", "0").param("size", "10")
+                .accept(MediaType.APPLICATION_STREAM_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.trim().split("\n")).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Deve executar as consultas R2DBC fora da thread que assina")
+    public void queriesRunOnR2dbcSchedulerTest(){
+        String thread = reactiveBookRepository.findById(books.get(0).getId())
+                .map(book -> Thread.currentThread().getName())
+                .block();
+
+        assertThat(thread).startsWith("r2dbc-h2");
+    }
+
+    private ResultActions performAsync(RequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+}
@@ -0,0 +1,58 @@
+package com.cursoback.libraryapi.api.mapper;
+
+import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookMapperTest {
+
+    @Test
+    @DisplayName("Deve converter um livro em dto")
+    public void bookToDtoTest(){
+        Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+
+        BookDTO dto = BookMapper.toDto(book);
+
+        assertThat(dto.getId()).isEqualTo(1);
+        assertThat(dto.getIsbn()).isEqualTo("123");
+        assertThat(dto.getAuthor()).isEqualTo("Fulano");
+        assertThat(dto.getTitle()).isEqualTo("As aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve converter um dto sem id em um livro novo")
+    public void dtoToBookTest(){
+        BookDTO dto = BookDTO.builder().isbn("123").author("Fulano").title("As aventuras").build();
+
+        Book book = BookMapper.toEntity(dto);
+
+        assertThat(book.getId()).isNull();
+        assertThat(book.getIsbn()).isEqualTo("123");
+        assertThat(book.getAuthor()).isEqualTo("Fulano");
+        assertThat(book.getTitle()).isEqualTo("As aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve converter um emprestimo em dto com o livro")
+    public void loanToDtoTest(){
+        Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+        Loan loan = Loan.builder().id(2L).customer("Cicrano").customerEmail("cicrano@email.com")
+                .loanDate(LocalDate.now()).book(book).build();
+
+        LoanDTO dto = LoanMapper.toDto(loan);
+
+        assertThat(dto.getId()).isEqualTo(2L);
+        assertThat(dto.getCustomer()).isEqualTo("Cicrano");
+        assertThat(dto.getEmail()).isEqualTo("cicrano@email.com");
+        assertThat(dto.getIsbn()).isEqualTo("123");
+        assertThat(dto.getBook().getId()).isEqualTo(1);
+        assertThat(dto.getBook().getTitle()).isEqualTo("As aventuras");
+    }
+}
@@ -1,11 +1,20 @@
 package com.cursoback.libraryapi.api.resource;
 
+import com.cursoback.libraryapi.api.CursorCodec;
+import com.cursoback.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursoback.libraryapi.api.dto.BookDTO;
 import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.VersionSummary;
+import com.cursoback.libraryapi.service.BookSearchService;
 import com.cursoback.libraryapi.service.BookService;
 import com.cursoback.libraryapi.service.LoanService;
+import com.cursoback.libraryapi.service.search.Suggestion;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,17 +27,24 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,6 +66,9 @@ public class BookControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private BookSearchService searchService;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso.")
     public void createBookTest() throws Exception {
@@ -67,7 +86,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("id").isNotEmpty())
                 .andExpect(jsonPath("title").value(dto.getTitle()))
@@ -115,7 +134,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value(mensagemError));
@@ -149,8 +168,77 @@ public class BookControllerTest {
                 .andExpect(jsonPath("id").value(id))
                 .andExpect(jsonPath("title").value(createNewBook().getTitle()))
                 .andExpect(jsonPath("author").value(createNewBook().getAuthor()))
-                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()));
+                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.0\""));
+
+    }
+
+    @Test
+    @DisplayName("Deve negociar CBOR e Smile para os detalhes do livro")
+    public void getBookBinaryFormatsTest() throws Exception {
+        Long id = 1L;
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("Aventuras").author("Arthur").isbn("001").build()));
 
+        byte[] cbor = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id))
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] smile = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id))
+                .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode fromCbor = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        JsonNode fromSmile = new ObjectMapper(new SmileFactory()).readTree(smile);
+        assertThat(fromCbor.get("title").asText()).isEqualTo("Aventuras");
+        assertThat(fromSmile.get("isbn").asText()).isEqualTo("001");
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 quando o livro não mudou")
+    public void getBookNotModifiedTest() throws Exception {
+        Long id = 1L;
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("Aventuras").version(3L).build()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + id))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1.3\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.3\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 para os empréstimos do livro sem carregar a pagina")
+    public void loansByBookNotModifiedTest() throws Exception {
+        Long id = 1L;
+        Book book = Book.builder().id(id).isbn("001").version(0L).build();
+        BDDMockito.given(service.getById(id)).willReturn(Optional.of(book));
+        BDDMockito.given(loanService.summarizeLoansByBook(book)).willReturn(new VersionSummary(2L, 7L, 1L, 0L));
+        BDDMockito.given(loanService.getLoansByBook(Mockito.eq(book), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(
+                        Loan.builder().id(7L).book(book).customer("Fulano").build()), PageRequest.of(0, 10), 1));
+
+        String etag = performAsync(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?page=0&size=10")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        performAsync(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        BDDMockito.given(loanService.summarizeLoansByBook(book)).willReturn(new VersionSummary(2L, 7L, 2L, 0L));
+        performAsync(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        verify(loanService, times(2)).getLoansByBook(Mockito.eq(book), Mockito.any(Pageable.class));
     }
 
     @Test
@@ -176,7 +264,7 @@ public class BookControllerTest {
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/") + 1L);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isNoContent());
 
     }
@@ -190,7 +278,7 @@ public class BookControllerTest {
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/") + 1L);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isNotFound());
 
     }
@@ -217,7 +305,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("id").value(id))
                 .andExpect(jsonPath("title").value(createNewBook().getTitle()))
@@ -226,6 +314,96 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve buscar livros por texto livre")
+    public void searchBooksTest() throws Exception {
+        Book book = Book.builder().id(1L).title("Aventuras").author("Arthur").isbn("001").build();
+
+        BDDMockito.given(searchService.search(Mockito.eq("aventuras arthur"), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API)
+                .param("q", "aventuras arthur")
+                .param("page", "0")
+                .param("size", "100")
+                .accept(MediaType.APPLICATION_JSON);
+
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].title").value("Aventuras"))
+                .andExpect(jsonPath("totalElements").value(1));
+
+        verify(service, never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve sugerir titulos e autores pelo prefixo")
+    public void suggestTest() throws Exception {
+        BDDMockito.given(searchService.suggest("aven", 5))
+                .willReturn(Arrays.asList(new Suggestion("Aventuras", Suggestion.Field.TITLE)));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/suggest"))
+                .param("q", "aven")
+                .param("size", "5")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].text").value("Aventuras"))
+                .andExpect(jsonPath("[0].field").value("TITLE"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar conflito quando o livro for alterado concorrentemente")
+    public void updateBookConflictTest() throws Exception {
+        Long id = 1L;
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("some title").author("some author")
+                        .isbn("001").version(1L).build()));
+        BDDMockito.given(service.update(Mockito.any(Book.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, id));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/") + id)
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        performAsync(request)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("errors", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Deve recusar a atualização quando o If-Match estiver desatualizado")
+    public void updateBookPreconditionFailedTest() throws Exception {
+        Long id = 1L;
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("some title").author("some author")
+                        .isbn("001").version(2L).build()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/") + id)
+                .header(HttpHeaders.IF_MATCH, "\"1.1\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        performAsync(request)
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors", hasSize(1)));
+
+        verify(service, never()).update(Mockito.any(Book.class));
+    }
+
     @Test
     @DisplayName("Deve retornar 404 ao tentar atualizar um livro inexistente")
     public void updateNonexistentBookTest() throws Exception {
@@ -241,7 +419,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isNotFound());
 
     }
@@ -269,7 +447,7 @@ public class BookControllerTest {
                 .get(BOOK_API.concat(queryString))
                 .accept(MediaType.APPLICATION_JSON);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
@@ -278,8 +456,109 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros por cursor retornando o proximo cursor")
+    public void findBookAfterCursorTest() throws Exception {
+        Book book = Book.builder()
+                .id(11L)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(10L), Mockito.eq(1)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String queryString = String.format("?title=%s&after=%s&size=1",
+                book.getTitle(),
+                CursorCodec.encode(10L));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("size").value(1))
+                .andExpect(jsonPath("next").value(CursorCodec.encode(11L)));
+
+        verify(service, never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um cursor invalido")
+    public void findBookInvalidCursorTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?after=invalido"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve criar livros em lote")
+    public void createBooksBatchTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook(), createNewBook()));
+
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willReturn(Arrays.asList(
+                        BookBatchResultDTO.builder().index(0).isbn("001").id(1L)
+                                .status(BookBatchResultDTO.Status.CREATED).build(),
+                        BookBatchResultDTO.builder().index(1).isbn("001")
+                                .status(BookBatchResultDTO.Status.DUPLICATED).error("Isbn já cadastrado").build()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value("DUPLICATED"));
+    }
+
+    @Test
+    @DisplayName("Deve reportar cada livro inválido do lote sem rejeitar os demais")
+    public void createInvalidBooksBatchTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook(), new BookDTO()));
+
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willReturn(Arrays.asList(
+                        BookBatchResultDTO.builder().index(0).isbn("001").id(1L)
+                                .status(BookBatchResultDTO.Status.CREATED).build(),
+                        BookBatchResultDTO.builder().index(1)
+                                .status(BookBatchResultDTO.Status.INVALID)
+                                .error("Titulo, autor e isbn sao obrigatorios").build()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("INVALID"));
+        Mockito.verify(service).saveAll(Mockito.argThat(books -> books.size() == 2));
+    }
+
     private static BookDTO createNewBook() {
         return BookDTO.builder().author("Arthur").title("Aventuras")
                 .isbn("001").build();
     }
+
+    private ResultActions performAsync(RequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
 }
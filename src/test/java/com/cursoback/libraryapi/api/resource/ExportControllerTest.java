@@ -0,0 +1,84 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.service.ExportFormat;
+import com.cursoback.libraryapi.service.ExportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = ExportController.class)
+@AutoConfigureMockMvc
+public class ExportControllerTest {
+
+    static final String API = "/api";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private ExportService service;
+
+    @Test
+    @DisplayName("Deve exportar os livros em csv")
+    public void exportBooksCsvTest() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("id,title,author,isbn\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(service).exportBooks(Mockito.eq(ExportFormat.CSV), Mockito.any(OutputStream.class));
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/books/export?format=csv")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string("id,title,author,isbn\n"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos em ndjson compactado")
+    public void exportLoansGzipTest() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(service).exportLoans(Mockito.eq(ExportFormat.NDJSON), Mockito.any(OutputStream.class));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(API.concat("/loans/export?gzip=true")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        String body = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+        assertThat(body).isEqualTo("{\"id\":1}\n");
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um formato desconhecido")
+    public void exportUnknownFormatTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/books/export?format=xml")))
+                .andExpect(status().isBadRequest());
+    }
+}
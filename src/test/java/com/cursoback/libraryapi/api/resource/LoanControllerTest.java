@@ -1,16 +1,20 @@
 package com.cursoback.libraryapi.api.resource;
 
+import com.cursoback.libraryapi.api.CursorCodec;
 import com.cursoback.libraryapi.api.dto.LoanDTO;
 import com.cursoback.libraryapi.api.dto.LoanFilterDTO;
 import com.cursoback.libraryapi.api.dto.ReturnedLoanDTO;
 import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.VersionSummary;
 import com.cursoback.libraryapi.service.BookService;
 import com.cursoback.libraryapi.service.LoanService;
 import com.cursoback.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -24,10 +28,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -36,6 +46,7 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -77,7 +88,7 @@ public class LoanControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
     }
@@ -101,7 +112,7 @@ public class LoanControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", Matchers.hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value("Book already loaned"));
@@ -113,22 +124,92 @@ public class LoanControllerTest {
     public void returnBookTest() throws Exception {
         //cenario
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
-        Loan loan = Loan.builder().id(1L).build();
+        Loan loan = Loan.builder().id(1L).version(0L).build();
         BDDMockito.given(loanService.getById(Mockito.anyLong()))
                 .willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.updateIfUnchanged(loan))
+                .willReturn(Loan.builder().id(1L).version(1L).build());
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
-        mvc.perform(
+        performAsync(
                 patch(LOAN_API.concat("/1"))
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"1.0\"")
                         .content(json)
-        ).andExpect( status().isOk());
+        ).andExpect( status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.1\""));
+
+        Mockito.verify(loanService, Mockito.times(1)).updateIfUnchanged(loan);
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar um livro com retentativa quando não houver If-Match")
+    public void returnBookWithoutIfMatchTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        Loan loan = Loan.builder().id(1L).version(0L).build();
+        BDDMockito.given(loanService.getById(Mockito.anyLong()))
+                .willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.update(loan))
+                .willReturn(Loan.builder().id(1L).version(1L).build());
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        performAsync(
+                patch(LOAN_API.concat("/1"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        ).andExpect( status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.1\""));
 
         Mockito.verify(loanService, Mockito.times(1)).update(loan);
     }
 
+    @Test
+    @DisplayName("Deve recusar a devolução quando o emprestimo mudar depois da checagem do If-Match")
+    public void returnBookConcurrentChangeTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        Loan loan = Loan.builder().id(1L).version(0L).build();
+        BDDMockito.given(loanService.getById(Mockito.anyLong()))
+                .willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.updateIfUnchanged(loan))
+                .willThrow(new ObjectOptimisticLockingFailureException(Loan.class, 1L));
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        performAsync(
+                patch(LOAN_API.concat("/1"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"1.0\"")
+                        .content(json)
+        ).andExpect( status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Deve recusar a devolução quando o If-Match estiver desatualizado")
+    public void returnBookPreconditionFailedTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        BDDMockito.given(loanService.getById(Mockito.anyLong()))
+                .willReturn(Optional.of(Loan.builder().id(1L).version(2L).build()));
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        performAsync(
+                patch(LOAN_API.concat("/1"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"1.1\"")
+                        .content(json)
+        ).andExpect( status().isPreconditionFailed());
+
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+        Mockito.verify(loanService, Mockito.never()).updateIfUnchanged(Mockito.any(Loan.class));
+    }
+
     @Test
     @DisplayName("Deve retornar 4040 quando tentar devolver um livro inexistente")
     public void returnNonExistBookTest() throws Exception {
@@ -139,7 +220,7 @@ public class LoanControllerTest {
         BDDMockito.given(loanService.getById(Mockito.anyLong()))
                 .willReturn(Optional.empty());
 
-        mvc.perform(
+        performAsync(
                 patch(LOAN_API.concat("/1"))
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -157,6 +238,8 @@ public class LoanControllerTest {
         Book book = Book.builder().id(1L).isbn("321").build();
         loan.setBook(book);
 
+        BDDMockito.given(loanService.summarize(Mockito.any(LoanFilterDTO.class)))
+                .willReturn(new VersionSummary(1L, 1L, 0L, 0L));
         BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
                 .willReturn( new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10),1));
 
@@ -168,12 +251,83 @@ public class LoanControllerTest {
                 .get(LOAN_API.concat(queryString))
                 .accept(MediaType.APPLICATION_JSON);
 
-        mvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(10))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("pageable.pageNumber").value(0))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar a pagina de empréstimos em Smile quando solicitado")
+    public void findLoanSmileTest() throws Exception {
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(1L);
+        loan.getBook().setIsbn("321");
+        BDDMockito.given(loanService.summarize(Mockito.any(LoanFilterDTO.class)))
+                .willReturn(new VersionSummary(1L, 1L, 0L, 0L));
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        byte[] body = performAsync(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=321&page=0&size=10"))
+                .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertThat(page.get("totalElements").asLong()).isEqualTo(1);
+        assertThat(page.get("content").get(0).get("isbn").asText()).isEqualTo("321");
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 sem consultar a pagina quando os empréstimos não mudaram")
+    public void findLoanNotModifiedTest() throws Exception {
+        BDDMockito.given(loanService.summarize(Mockito.any(LoanFilterDTO.class)))
+                .willReturn(new VersionSummary(1L, 1L, 0L, 0L));
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(LoanServiceTest.createLoan()), PageRequest.of(0, 10), 1));
+
+        String etag = performAsync(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=321&page=0&size=10")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        performAsync(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=321&page=0&size=10"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        Mockito.verify(loanService, Mockito.times(1))
+                .find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos por cursor sem proxima pagina")
+    public void findLoanAfterCursorTest() throws Exception {
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(1L);
+        loan.setBook(Book.builder().id(1L).isbn("321").build());
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(0L), Mockito.eq(20)))
+                .willReturn(new SliceImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 20), false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=321&after="))
+                .accept(MediaType.APPLICATION_JSON);
+
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].book.isbn").value("321"))
+                .andExpect(jsonPath("next").doesNotExist());
+    }
 
+    private ResultActions performAsync(RequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
     }
 }
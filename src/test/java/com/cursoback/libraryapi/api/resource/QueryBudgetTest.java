@@ -0,0 +1,132 @@
+package com.cursoback.libraryapi.api.resource;
+
+import com.cursoback.libraryapi.config.SqlStatementRecorder;
+import com.cursoback.libraryapi.config.SqlStatistics;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Upper bounds on the statements each endpoint may run. A new lazy load or
+ * an exists-then-save pattern fails here instead of in production.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class QueryBudgetTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    String customer;
+    List<Book> books = new ArrayList<>();
+    List<Loan> loans = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp(){
+        customer = "budget-" + System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            Book book = bookRepository.save(Book.builder().title("Aventuras " + i).author("Fulano")
+                    .isbn(customer + "-" + i).build());
+            books.add(book);
+            loans.add(loanRepository.save(Loan.builder().book(book).customer(customer)
+                    .loanDate(LocalDate.now()).build()));
+        }
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteAll(loanRepository.findAllById(
+                loans.stream().map(Loan::getId).collect(Collectors.toList())));
+        bookRepository.deleteAll(bookRepository.findAllById(
+                books.stream().map(Book::getId).collect(Collectors.toList())));
+    }
+
+    @Test
+    @DisplayName("Detalhe do livro deve usar no maximo uma consulta")
+    public void getBookBudgetTest() throws Exception {
+        SqlStatistics statistics = SqlStatementRecorder.record(() ->
+                mvc.perform(MockMvcRequestBuilders.get("/api/books/" + books.get(0).getId()))
+                        .andExpect(status().isOk()));
+
+        assertThat(statistics.getCount()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Listagem de empréstimos não deve carregar os livros um a um")
+    public void findLoansBudgetTest() throws Exception {
+        SqlStatistics statistics = SqlStatementRecorder.record(() ->
+                performAsync(MockMvcRequestBuilders.get("/api/loans")
+                        .param("customer", customer).param("page", "0").param("size", "10"))
+                        .andExpect(status().isOk()));
+
+        assertThat(statistics.getCount()).isLessThanOrEqualTo(3);
+        assertThat(statistics.getRepeatedShapes()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Empréstimos do livro devem usar no maximo quatro consultas")
+    public void loansByBookBudgetTest() throws Exception {
+        SqlStatistics statistics = SqlStatementRecorder.record(() ->
+                performAsync(MockMvcRequestBuilders.get("/api/books/" + books.get(0).getId() + "/loans")
+                        .param("page", "0").param("size", "10"))
+                        .andExpect(status().isOk()));
+
+        assertThat(statistics.getCount()).isLessThanOrEqualTo(4);
+        assertThat(statistics.getRepeatedShapes()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Criar um livro deve custar um insert, mais a sequence a cada 50 ids")
+    public void createBookBudgetTest() throws Exception {
+        String json = "{\"title\":\"Budget\",\"author\":\"Fulano\",\"isbn\":\"" + customer + "-new\"}";
+
+        SqlStatistics statistics = SqlStatementRecorder.record(() ->
+                performAsync(MockMvcRequestBuilders.post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                        .andExpect(status().isCreated()));
+        bookRepository.findByIsbn(customer + "-new").ifPresent(books::add);
+
+        assertThat(statistics.getCount()).isLessThanOrEqualTo(2);
+    }
+
+    private ResultActions performAsync(RequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+}
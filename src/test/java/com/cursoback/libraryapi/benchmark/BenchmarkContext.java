@@ -0,0 +1,102 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.LibraryApiApplication;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against a private in-memory H2 database, without the
+ * web layer or on a random port, and seeds it with a catalog of the requested
+ * size.
+ */
+final class BenchmarkContext {
+
+    private static final int CHUNK = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    static ConfigurableApplicationContext startServer(String database, String... properties) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    static List<Book> seedBooks(ConfigurableApplicationContext context, int books) {
+        BookRepository repository = context.getBean(BookRepository.class);
+        List<Book> saved = new ArrayList<>(books);
+        List<Book> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < books; i++) {
+            chunk.add(Book.builder()
+                    .title("Title " + i)
+                    .author("Author " + (i % 500))
+                    .isbn(String.format("%013d", i))
+                    .build());
+            if (chunk.size() == CHUNK) {
+                saved.addAll(repository.saveAll(chunk));
+                chunk.clear();
+            }
+        }
+        saved.addAll(repository.saveAll(chunk));
+        return saved;
+    }
+
+    static void seedLoans(ConfigurableApplicationContext context, List<Book> books, int loans) {
+        seedLoans(context, books, loans, 2000);
+    }
+
+    /**
+     * Returned loans spread over {@code customers} customers named
+     * {@code Customer 0}, {@code Customer 1}, ...
+     */
+    static void seedLoans(ConfigurableApplicationContext context, List<Book> books, int loans, int customers) {
+        LoanRepository repository = context.getBean(LoanRepository.class);
+        List<Loan> chunk = new ArrayList<>(CHUNK);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < loans; i++) {
+            chunk.add(Loan.builder()
+                    .book(books.get(i % books.size()))
+                    .customer("Customer " + (i % customers))
+                    .customerEmail("customer" + (i % customers) + "@email.com")
+                    .loanDate(today.minusDays(i % 30))
+                    .returned(true)
+                    .build());
+            if (chunk.size() == CHUNK) {
+                repository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        repository.saveAll(chunk);
+    }
+}
@@ -0,0 +1,49 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    @Param({"10000", "100000"})
+    int books;
+
+    private ConfigurableApplicationContext context;
+    private BookService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("books" + books);
+        BenchmarkContext.seedBooks(context, books);
+        service = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        Book filter = Book.builder().title("title 42").build();
+        return service.find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Book> findByAuthor() {
+        Book filter = Book.builder().author("AUTHOR 7").build();
+        return service.find(filter, PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,383 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.config.VirtualThreads;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test: boots the application on a random port against a
+ * private in-memory H2 database, seeds it, and sends a mixed workload at a
+ * fixed arrival rate. Latency is measured from the moment each request was
+ * due, so a slow server cannot hide its queueing by slowing the load down.
+ * <p>
+ * Settings are {@code loadtest.*} system properties (see {@link Settings}).
+ * The JSON report lands in {@code target/loadtest/report.json}, and the
+ * process exits with status 1 when the p99 or error rate gates are exceeded.
+ * Run with {@code mvn -P loadtest verify}.
+ */
+public class LoadTest {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    enum Endpoint {
+        CREATE_LOAN("POST /api/loans"),
+        RETURN_LOAN("PATCH /api/loans/{id}"),
+        SEARCH_BOOKS("GET /api/books?title="),
+        LIST_LOANS("GET /api/loans");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    static final class Settings {
+        final int books = Integer.getInteger("loadtest.books", 10_000);
+        final int loans = Integer.getInteger("loadtest.loans", 50_000);
+        final int customers = Integer.getInteger("loadtest.customers", 2_000);
+        final int rate = Integer.getInteger("loadtest.rate", 200);
+        final int seconds = Integer.getInteger("loadtest.seconds", 60);
+        final int warmUpSeconds = Integer.getInteger("loadtest.warmup-seconds", 15);
+        final int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 1000);
+        /** Weights of create, return, title search and loan listing, in that order. */
+        final int[] mix = parseMix(System.getProperty("loadtest.mix", "15,15,40,30"));
+        /** Highest accepted p99 of any endpoint, 0 disables the gate. */
+        final double maxP99Millis = Double.parseDouble(System.getProperty("loadtest.max-p99-ms", "0"));
+        final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+        final Path output = Paths.get(System.getProperty("loadtest.output", "target/loadtest/report.json"));
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("books", books);
+            map.put("loans", loans);
+            map.put("customers", customers);
+            map.put("requestsPerSecond", rate);
+            map.put("seconds", seconds);
+            map.put("warmUpSeconds", warmUpSeconds);
+            map.put("maxInFlight", maxInFlight);
+            map.put("mix", mix);
+            return map;
+        }
+
+        private static int[] parseMix(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != Endpoint.values().length) {
+                throw new IllegalArgumentException("loadtest.mix needs " + Endpoint.values().length
+                        + " weights, got " + value);
+            }
+            int[] mix = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                mix[i] = Integer.parseInt(parts[i].trim());
+            }
+            return mix;
+        }
+    }
+
+    static final class Stats {
+        final Recorder latency = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+    }
+
+    private final Settings settings;
+    private final String baseUrl;
+    private final CloseableHttpClient client;
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+    private final Queue<String> freeIsbns = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> openLoans = new ConcurrentLinkedQueue<>();
+    private final Map<Long, String> openLoanIsbns = new ConcurrentHashMap<>();
+
+    LoadTest(Settings settings, String baseUrl, List<Book> books) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.client = HttpClients.custom()
+                .setMaxConnTotal(settings.maxInFlight)
+                .setMaxConnPerRoute(settings.maxInFlight)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(30_000)
+                        .setSocketTimeout(60_000)
+                        .build())
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+        books.forEach(book -> freeIsbns.add(book.getIsbn()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        Map<String, Object> report;
+        ConfigurableApplicationContext context = BenchmarkContext.startServer("loadtest",
+                "application.mail.outbox.poll-interval=3600000",
+                "application.sql.query-budget=1000");
+        try {
+            List<Book> books = BenchmarkContext.seedBooks(context, settings.books);
+            BenchmarkContext.seedLoans(context, books, settings.loans, settings.customers);
+            LoadTest test = new LoadTest(settings, "http://localhost:" + BenchmarkContext.port(context), books);
+            try {
+                report = test.run();
+            } finally {
+                test.client.close();
+            }
+        } finally {
+            context.close();
+        }
+
+        Files.createDirectories(settings.output.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(settings.output.toFile(), report);
+        System.out.println("Report written to " + settings.output.toAbsolutePath());
+
+        @SuppressWarnings("unchecked")
+        List<String> violations = (List<String>) report.get("violations");
+        violations.forEach(violation -> System.out.println("FAILED: " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        ThreadFactory threads = VirtualThreads.isAvailable()
+                ? VirtualThreads.threadFactory("loadtest-")
+                : Executors.defaultThreadFactory();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, settings.maxInFlight,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), threads);
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmUpSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.seconds);
+        String startedAt = Instant.now().toString();
+
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick();
+            boolean measured = due >= measureFrom;
+            try {
+                executor.execute(() -> send(endpoint, due, measured));
+            } catch (RejectedExecutionException e) {
+                if (measured) {
+                    stats.get(endpoint).dropped.incrementAndGet();
+                }
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(2, TimeUnit.MINUTES);
+
+        return report(startedAt);
+    }
+
+    private Endpoint pick() {
+        int total = 0;
+        for (int weight : settings.mix) {
+            total += weight;
+        }
+        int value = ThreadLocalRandom.current().nextInt(total);
+        for (Endpoint endpoint : Endpoint.values()) {
+            value -= settings.mix[endpoint.ordinal()];
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.SEARCH_BOOKS;
+    }
+
+    /**
+     * Writes fall back to a title search when there is no free book to lend
+     * or no open loan to return, and are reported under the search.
+     */
+    private void send(Endpoint endpoint, long due, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Endpoint sent = endpoint;
+        boolean ok;
+        try {
+            String isbn;
+            Long loanId;
+            if (endpoint == Endpoint.CREATE_LOAN && (isbn = freeIsbns.poll()) != null) {
+                ok = createLoan(isbn, "Customer " + random.nextInt(settings.customers));
+            } else if (endpoint == Endpoint.RETURN_LOAN && (loanId = openLoans.poll()) != null) {
+                ok = returnLoan(loanId);
+            } else if (endpoint == Endpoint.LIST_LOANS) {
+                ok = execute(new HttpGet(baseUrl + "/api/loans?customer=Customer%20"
+                        + random.nextInt(settings.customers) + "&page=" + random.nextInt(3) + "&size=10")).ok();
+            } else {
+                sent = Endpoint.SEARCH_BOOKS;
+                ok = execute(new HttpGet(baseUrl + "/api/books?title=Title%20"
+                        + random.nextInt(settings.books) + "&page=0&size=10")).ok();
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (measured) {
+            Stats endpointStats = stats.get(sent);
+            endpointStats.latency.recordValue(Math.min(
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), HIGHEST_LATENCY_MICROS));
+            if (!ok) {
+                endpointStats.errors.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean createLoan(String isbn, String customer) throws IOException {
+        HttpPost post = new HttpPost(baseUrl + "/api/loans");
+        post.setEntity(new StringEntity("{\"isbn\":\"" + isbn + "\",\"customer\":\"" + customer
+                + "\",\"email\":\"loadtest@email.com\"}", ContentType.APPLICATION_JSON));
+        Response response;
+        try {
+            response = execute(post);
+        } catch (IOException e) {
+            freeIsbns.add(isbn);
+            throw e;
+        }
+        if (response.status != 201) {
+            freeIsbns.add(isbn);
+            return false;
+        }
+        Long id = Long.valueOf(response.body.trim());
+        openLoanIsbns.put(id, isbn);
+        openLoans.add(id);
+        return true;
+    }
+
+    private boolean returnLoan(Long id) throws IOException {
+        HttpPatch patch = new HttpPatch(baseUrl + "/api/loans/" + id);
+        patch.setEntity(new StringEntity("{\"returned\":true}", ContentType.APPLICATION_JSON));
+        Response response;
+        try {
+            response = execute(patch);
+        } catch (IOException e) {
+            openLoans.add(id);
+            throw e;
+        }
+        if (!response.ok()) {
+            openLoans.add(id);
+            return false;
+        }
+        freeIsbns.add(openLoanIsbns.remove(id));
+        return true;
+    }
+
+    private Response execute(HttpUriRequest request) throws IOException {
+        return client.execute(request, httpResponse -> {
+            HttpEntity entity = httpResponse.getEntity();
+            return new Response(httpResponse.getStatusLine().getStatusCode(),
+                    entity == null ? "" : EntityUtils.toString(entity));
+        });
+    }
+
+    private Map<String, Object> report(String startedAt) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        List<String> violations = new ArrayList<>();
+        Histogram all = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        long errors = 0;
+        long dropped = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Stats endpointStats = stats.get(endpoint);
+            Histogram histogram = endpointStats.latency.getIntervalHistogram();
+            all.add(histogram);
+            errors += endpointStats.errors.get();
+            dropped += endpointStats.dropped.get();
+            Map<String, Object> summary = summary(histogram, endpointStats.errors.get(), endpointStats.dropped.get());
+            endpoints.put(endpoint.label, summary);
+
+            double p99 = (double) summary.get("p99Millis");
+            if (settings.maxP99Millis > 0 && p99 > settings.maxP99Millis) {
+                violations.add(endpoint.label + " p99 " + p99 + " ms > " + settings.maxP99Millis + " ms");
+            }
+        }
+        Map<String, Object> total = summary(all, errors, dropped);
+        double errorRate = (double) total.get("errorRate");
+        if (errorRate > settings.maxErrorRate) {
+            violations.add("error rate " + errorRate + " > " + settings.maxErrorRate);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("settings", settings.toMap());
+        report.put("endpoints", endpoints);
+        report.put("total", total);
+        report.put("violations", violations);
+        return report;
+    }
+
+    /**
+     * Completed requests include the failed ones; dropped requests never got
+     * a free slot and have no latency.
+     */
+    private Map<String, Object> summary(Histogram histogram, long errors, long dropped) {
+        long completed = histogram.getTotalCount();
+        long attempted = completed + dropped;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", attempted);
+        summary.put("errors", errors);
+        summary.put("dropped", dropped);
+        summary.put("errorRate", attempted == 0 ? 0.0 : (double) (errors + dropped) / attempted);
+        summary.put("throughput", (double) (completed - errors) / settings.seconds);
+        summary.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMillis", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    @Param({"10000"})
+    int books;
+
+    @Param({"50000"})
+    int loans;
+
+    private ConfigurableApplicationContext context;
+    private LoanService service;
+    private List<Book> seededBooks;
+    private Loan[] openLoans;
+    private int next;
+    private int slot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("loans" + books + "_" + loans);
+        seededBooks = BenchmarkContext.seedBooks(context, books);
+        BenchmarkContext.seedLoans(context, seededBooks, loans);
+        service = context.getBean(LoanService.class);
+        openLoans = new Loan[seededBooks.size()];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Frees the next book in the rotation by returning the loan the previous
+     * pass left open on it, outside the measured call. A single save is a
+     * database round trip, long enough for per-invocation setup.
+     */
+    @Setup(Level.Invocation)
+    public void returnPreviousLoan() {
+        slot = next++ % seededBooks.size();
+        Loan open = openLoans[slot];
+        if (open != null) {
+            open.setReturned(true);
+            service.update(open);
+            openLoans[slot] = null;
+        }
+    }
+
+    /**
+     * Opens a loan on a free book, so the insert goes through the
+     * uk_loan_open_book unique index that enforces availability.
+     */
+    @Benchmark
+    public Loan save() {
+        Loan loan = Loan.builder()
+                .book(seededBooks.get(slot))
+                .customer("Benchmark")
+                .customerEmail("benchmark@email.com")
+                .loanDate(LocalDate.now())
+                .build();
+        openLoans[slot] = service.save(loan);
+        return openLoans[slot];
+    }
+}
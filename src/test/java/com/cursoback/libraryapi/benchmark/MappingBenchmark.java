@@ -0,0 +1,63 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.api.dto.BookDTO;
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.api.mapper.BookMapper;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row mapping cost of the reflective ModelMapper the controllers used to
+ * call against the static mappers that replaced it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private Book book;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        book = Book.builder().id(1L).title("As aventuras").author("Fulano").isbn("123").build();
+        loan = Loan.builder().id(1L).customer("Cicrano").customerEmail("cicrano@email.com")
+                .loanDate(LocalDate.now()).book(book).build();
+        modelMapper.map(book, BookDTO.class);
+        modelMapper.map(loan, LoanDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookModelMapper() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookMapper() {
+        return BookMapper.toDto(book);
+    }
+
+    @Benchmark
+    public LoanDTO loanModelMapper() {
+        BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
+        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+        loanDTO.setBook(bookDTO);
+        return loanDTO;
+    }
+
+    @Benchmark
+    public LoanDTO loanMapper() {
+        return LoanMapper.toDto(loan);
+    }
+}
@@ -0,0 +1,74 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.api.dto.LoanDTO;
+import com.cursoback.libraryapi.api.mapper.LoanMapper;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes one loan page as JSON, CBOR and Smile. The payload size of each
+ * format is printed once per trial, next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+    private Page<LoanDTO> page;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        cborMapper = new ObjectMapper(new CBORFactory());
+        smileMapper = new ObjectMapper(new SmileFactory());
+        List<LoanDTO> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Book book = Book.builder().id((long) i).title("Title " + i).author("Author " + i)
+                    .isbn(String.format("%013d", i)).build();
+            Loan loan = Loan.builder().id((long) i).customer("Customer " + i)
+                    .customerEmail("customer" + i + "@email.com").loanDate(LocalDate.now()).book(book).build();
+            content.add(LoanMapper.toDto(loan));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize), 100_000);
+
+        System.out.printf("%npayload bytes for %d loans: json=%d cbor=%d smile=%d%n", pageSize,
+                loanPageToJson().length, loanPageToCbor().length, loanPageToSmile().length);
+    }
+
+    @Benchmark
+    public byte[] loanPageToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] loanPageToCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] loanPageToSmile() throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,207 @@
+package com.cursoback.libraryapi.benchmark;
+
+import com.cursoback.libraryapi.config.VirtualThreads;
+import com.cursoback.libraryapi.model.entity.Book;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the same closed-loop HTTP workload against the application with the
+ * default platform thread pools and with {@code application.threads.virtual}
+ * enabled, for each number of concurrent clients, and reports throughput and
+ * latency percentiles. The virtual mode is skipped on runtimes older than
+ * Java 21.
+ * <p>
+ * The workload mixes book lookups served on the request thread with filtered
+ * listings and loan pages that run on the read pool. The read, write and
+ * connection pool sizes are the same in both modes, so the thread kind is
+ * the only difference, and they are reported as columns of their own.
+ * <p>
+ * Run with {@code mvn -P thread-modes verify}; arguments are the client
+ * counts, the measured seconds, the warm-up seconds of each step and the
+ * read and write pool sizes.
+ */
+public class ThreadModeComparison {
+
+    private static final int BOOKS = 10_000;
+    private static final int LOANS = 50_000;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> clients = args.length > 0
+                ? Arrays.stream(args[0].split(",")).map(Integer::valueOf).collect(Collectors.toList())
+                : Arrays.asList(1000, 2500, 5000, 10000);
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int warmUpSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int readThreads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int writeThreads = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(clients.stream().max(Integer::compare).orElse(1)));
+
+        List<String> report = new ArrayList<>();
+        report.add("mode,read_threads,write_threads,clients,requests_per_second,errors,"
+                + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (String mode : Arrays.asList("platform", "virtual")) {
+            if ("virtual".equals(mode) && !VirtualThreads.isAvailable()) {
+                System.out.println("Skipping virtual mode, Java " + System.getProperty("java.version")
+                        + " has no virtual threads");
+                continue;
+            }
+            ConfigurableApplicationContext context = start(mode, readThreads, writeThreads);
+            try {
+                List<Book> books = BenchmarkContext.seedBooks(context, BOOKS);
+                BenchmarkContext.seedLoans(context, books, LOANS);
+                String baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/api/books";
+                long firstId = books.get(0).getId();
+                for (int count : clients) {
+                    String line = mode + "," + readThreads + "," + writeThreads + "," + count + ","
+                            + run(baseUrl, firstId, count, seconds, warmUpSeconds);
+                    System.out.println(line);
+                    report.add(line);
+                }
+            } finally {
+                context.close();
+            }
+        }
+
+        Path output = Paths.get("target", "thread-modes.csv");
+        Files.createDirectories(output.getParent());
+        Files.write(output, report);
+        System.out.println("Report written to " + output.toAbsolutePath());
+    }
+
+    private static ConfigurableApplicationContext start(String mode, int readThreads, int writeThreads) {
+        return BenchmarkContext.startServer("thread_modes_" + mode,
+                "application.threads.virtual=" + "virtual".equals(mode),
+                "server.tomcat.max-connections=20000",
+                "server.tomcat.accept-count=10000",
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "application.mail.outbox.poll-interval=3600000",
+                "application.sql.query-budget=1000",
+                "application.async.read.threads=" + readThreads,
+                "application.async.write.threads=" + writeThreads);
+    }
+
+    private static String run(String baseUrl, long firstId, int clients, int seconds, int warmUpSeconds)
+            throws InterruptedException {
+        Recorder recorder = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+        AtomicLong errors = new AtomicLong();
+        long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmUpSeconds + seconds);
+        ThreadFactory threads = clientThreads();
+
+        List<Thread> running = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Thread thread = threads.newThread(() -> {
+                while (System.nanoTime() < stopAt) {
+                    long start = System.nanoTime();
+                    boolean ok = get(nextUrl(baseUrl, firstId));
+                    recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                            HIGHEST_LATENCY_MICROS));
+                    if (!ok) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            running.add(thread);
+        }
+
+        TimeUnit.SECONDS.sleep(warmUpSeconds);
+        recorder.getIntervalHistogram();
+        errors.set(0);
+        long measuredFrom = System.nanoTime();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - measuredFrom) / 1e9;
+        Histogram histogram = recorder.getIntervalHistogram();
+
+        return String.format("%.0f,%d,%.2f,%.2f,%.2f,%.2f,%.2f",
+                histogram.getTotalCount() / elapsedSeconds,
+                errors.get(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * Half of the requests are single book lookups, the rest are filtered
+     * listings and loan pages of random books.
+     */
+    private static String nextUrl(String baseUrl, long firstId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = firstId + random.nextInt(BOOKS);
+        int kind = random.nextInt(10);
+        if (kind < 5) {
+            return baseUrl + "/" + id;
+        }
+        if (kind < 8) {
+            return baseUrl + "?author=Author%20" + random.nextInt(500) + "&page=0&size=10";
+        }
+        return baseUrl + "/" + id + "/loans?page=0&size=10";
+    }
+
+    private static boolean get(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(30_000);
+            connection.setReadTimeout(60_000);
+            int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                drain(body);
+            }
+            return status < 400;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) != -1) {
+            // the connection is only reused once the body has been read
+        }
+    }
+
+    /**
+     * Clients run on virtual threads when the JVM has them, so the load
+     * generator itself does not need thousands of platform threads.
+     */
+    private static ThreadFactory clientThreads() {
+        if (VirtualThreads.isAvailable()) {
+            return VirtualThreads.threadFactory("client-");
+        }
+        return task -> new Thread(null, task, "client", 256 * 1024);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.cursoback.libraryapi.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncConfigTest {
+
+    ObjectProvider<AsyncTaskExecutor> streamExecutor = Mockito.mock(ObjectProvider.class);
+    ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    public void tearDown(){
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar tarefas quando a fila do executor estiver cheia")
+    public void rejectWhenSaturatedTest() throws Exception {
+        executor = config().readExecutor(1, 1);
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+        Throwable exception = catchThrowable(() -> executor.execute(() -> { }));
+        release.countDown();
+
+        assertThat(exception).isInstanceOf(TaskRejectedException.class);
+        assertThat(executor.getThreadPoolExecutor().getMaximumPoolSize()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve propagar a gravação de SQL da requisição para a thread do executor")
+    public void propagateSqlStatisticsTest() throws Exception {
+        executor = config().writeExecutor(1, 10);
+        executor.initialize();
+
+        SqlStatistics statistics = SqlStatementRecorder.record(() -> {
+            Future<?> future = executor.submit(() -> SqlStatementRecorder.onStatement("select 1", 2));
+            future.get(5, TimeUnit.SECONDS);
+        });
+        Future<SqlStatistics> afterwards = executor.submit(SqlStatementRecorder::current);
+
+        assertThat(statistics.getCount()).isEqualTo(1);
+        assertThat(statistics.getElapsedMillis()).isEqualTo(2);
+        assertThat(afterwards.get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve escrever as respostas em streaming no executor limitado")
+    public void streamExecutorTest(){
+        executor = config().streamExecutor(2, 10);
+        executor.initialize();
+        when(streamExecutor.getObject()).thenReturn(executor);
+        AsyncSupportConfigurer configurer = Mockito.mock(AsyncSupportConfigurer.class);
+
+        config().configureAsyncSupport(configurer);
+
+        verify(configurer).setDefaultTimeout(1000);
+        verify(configurer).setTaskExecutor(executor);
+        assertThat(executor.getThreadPoolExecutor().getMaximumPoolSize()).isEqualTo(2);
+        assertThat(executor.getThreadNamePrefix()).isEqualTo("stream-");
+    }
+
+    private AsyncConfig config() {
+        return new AsyncConfig(1000, streamExecutor);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.cursoback.libraryapi.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.core.statistics.CacheStatistics;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookCacheEndpointTest {
+
+    CacheManager cacheManager;
+    Cache<Long, String> cache;
+
+    @BeforeEach
+    public void setUp(){
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        cacheManager = provider.getCacheManager(URI.create("book-cache-endpoint-test"),
+                new DefaultConfiguration(getClass().getClassLoader()));
+        cache = cacheManager.createCache("books", Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Long.class, String.class,
+                        ResourcePoolsBuilder.heap(2))));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        cacheManager.close();
+    }
+
+    @Test
+    @DisplayName("Deve ler remoções e tamanho das estatisticas do Ehcache")
+    public void evictionsAndSizeTest(){
+        CacheStatistics statistics = BookCacheEndpoint.statistics(cache);
+
+        for (long id = 1; id <= 5; id++) {
+            cache.put(id, "livro " + id);
+        }
+
+        assertThat(statistics.getCacheEvictions()).isEqualTo(3L);
+        assertThat(BookCacheEndpoint.size(statistics)).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Deve informar tamanho zero para um cache vazio")
+    public void emptyCacheTest(){
+        CacheStatistics statistics = BookCacheEndpoint.statistics(cache);
+
+        assertThat(statistics.getCacheEvictions()).isZero();
+        assertThat(BookCacheEndpoint.size(statistics)).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.cursoback.libraryapi.config;
+
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    @DisplayName("Deve medir as chamadas aos repositorios por interface e metodo")
+    public void repositoryTimerTest(){
+        bookRepository.existsByIsbn("metrics");
+        bookRepository.count();
+
+        Timer timer = registry.find("repository.invocations")
+                .tag("repository", "BookRepository")
+                .tag("method", "count")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.find("repository.invocations").tag("method", "existsByIsbn").timer()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve publicar percentis, executores e pool de conexões no formato Prometheus")
+    public void prometheusScrapeTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/suggest").param("q", "a"))
+                .andExpect(status().isOk());
+
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("quantile=\"0.99\"")))
+                .andExpect(content().string(containsString("repository_invocations_seconds")))
+                .andExpect(content().string(containsString("executor_queued_tasks{name=\"emailOutboxExecutor\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+}
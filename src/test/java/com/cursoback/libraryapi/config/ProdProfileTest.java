@@ -0,0 +1,70 @@
+package com.cursoback.libraryapi.config;
+
+import com.cursoback.libraryapi.service.EmailOutboxDispatcher;
+import com.cursoback.libraryapi.service.ScheduleService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "prod"})
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProdProfileTest {
+
+    @Autowired
+    ConfigurableApplicationContext context;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    @DisplayName("Perfil prod deve iniciar sem a documentação e com beans preguiçosos")
+    public void lazyContextTest() {
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+
+        assertThat(context.getBeanNamesForType(Docket.class)).isEmpty();
+        assertThat(beanFactory.getBeanDefinition("bookServiceImpl").isLazyInit()).isTrue();
+        assertThat(context.containsBean("applicationTaskExecutor")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Perfil prod deve manter os jobs agendados ativos")
+    public void scheduledBeansAreEagerTest() {
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+
+        assertThat(beanFactory.containsSingleton(beanName(ScheduleService.class))).isTrue();
+        assertThat(beanFactory.containsSingleton(beanName(EmailOutboxDispatcher.class))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Perfil prod deve atender requisições com o bootstrap adiado do JPA")
+    public void firstRequestTest() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/api/books")
+                .param("title", "prod").param("page", "0").param("size", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    private String beanName(Class<?> type) {
+        return context.getBeanNamesForType(type)[0];
+    }
+}
@@ -0,0 +1,40 @@
+package com.cursoback.libraryapi.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs in the default build, where the R2DBC jars are missing, and with
+ * {@code -P reactive}, where they are present but the Spring profile is off.
+ * It names the reactive types by package, so it compiles in both.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class ReactiveProfileTest {
+
+    @Autowired
+    ConfigurableApplicationContext context;
+
+    @Test
+    @DisplayName("Sem o perfil reactive não deve configurar o acesso R2DBC")
+    public void noR2dbcWithoutProfileTest() {
+        assertThat(context.containsBean("reactiveConfig")).isFalse();
+        assertThat(Arrays.stream(context.getBeanDefinitionNames())
+                .map(context::getType)
+                .filter(Objects::nonNull)
+                .map(Class::getName))
+                .noneMatch(type -> type.startsWith("io.r2dbc.") || type.startsWith("org.springframework.data.r2dbc."));
+    }
+}
@@ -0,0 +1,50 @@
+package com.cursoback.libraryapi.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    @DisplayName("Deve criar threads virtuais nomeadas quando a JVM suportar")
+    public void virtualThreadFactoryTest() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+
+        Thread thread = VirtualThreads.threadFactory("vt-").newThread(() -> { });
+
+        assertThat(VirtualThreads.isVirtual(thread)).isTrue();
+        assertThat(thread.getName()).isEqualTo("vt-0");
+    }
+
+    @Test
+    @DisplayName("Deve executar cada tarefa em uma thread virtual")
+    public void threadPerTaskExecutorTest() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("vt-");
+
+        boolean virtual = executor.submit(() -> VirtualThreads.isVirtual(Thread.currentThread())).get();
+        executor.shutdown();
+
+        assertThat(virtual).isTrue();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao pedir threads virtuais em uma JVM sem suporte")
+    public void unavailableTest() {
+        assumeFalse(VirtualThreads.isAvailable());
+
+        Throwable exception = catchThrowable(() -> VirtualThreads.threadFactory("vt-"));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        assertThat(VirtualThreads.isVirtual(Thread.currentThread())).isFalse();
+    }
+}
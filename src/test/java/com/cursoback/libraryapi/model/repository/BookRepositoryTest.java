@@ -7,12 +7,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -40,6 +48,17 @@ public class BookRepositoryTest {
         assertThat(exists).isTrue();
     }
 
+    @Test
+    @DisplayName("Não deve permitir dois livros com o mesmo isbn")
+    public void isbnUniqueTest(){
+        entityManager.persist(createNewBook("123"));
+
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(createNewBook("123")));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("UK_BOOK_ISBN");
+    }
+
     public static Book createNewBook(String isbn) {
         return Book.builder().title("Aventuras").author("Fulano")
                 .isbn(isbn).build();
@@ -100,5 +119,31 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Deve buscar a proxima pagina de livros a partir do ultimo id")
+    public void findNextPageTest(){
+        Book first = createNewBook("001");
+        Book second = createNewBook("002");
+        Book third = createNewBook("003");
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(third);
+
+        Slice<Book> result = repository.findNextPage(first.getId(), "aventu", null, null,
+                PageRequest.of(0, 1, Sort.by("id")));
+
+        assertThat(result.getContent()).hasSize(1).contains(second);
+        assertThat(result.hasNext()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve retornar os isbns ja cadastrados em uma unica consulta")
+    public void findExistingIsbnsTest(){
+        entityManager.persist(createNewBook("001"));
+        entityManager.persist(createNewBook("002"));
+
+        Set<String> existing = repository.findExistingIsbns(Arrays.asList("001", "002", "003"));
 
+        assertThat(existing).containsExactlyInAnyOrder("001", "002");
+    }
 }
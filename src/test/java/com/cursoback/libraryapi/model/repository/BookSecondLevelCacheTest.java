@@ -0,0 +1,110 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.service.ExportFormat;
+import com.cursoback.libraryapi.service.ExportService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs without a test transaction: the query cache only serves results once
+ * the book table has no uncommitted changes.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class BookSecondLevelCacheTest {
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        book = repository.save(Book.builder().title("Aventuras").author("Fulano")
+                .isbn("l2-" + System.nanoTime()).build());
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        repository.findById(book.getId()).ifPresent(repository::delete);
+    }
+
+    @Test
+    @DisplayName("Deve ler o livro do cache de segundo nivel a partir da segunda busca")
+    public void entityCacheHitTest(){
+        repository.findById(book.getId());
+        repository.findById(book.getId());
+
+        assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getMissCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o livro em cache ao atualizar")
+    public void entityCacheInvalidatedOnUpdateTest(){
+        Book cached = repository.findById(book.getId()).get();
+        cached.setTitle("Outras Aventuras");
+        repository.save(cached);
+
+        assertThat(repository.findById(book.getId()).get().getTitle()).isEqualTo("Outras Aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve guardar o resultado de findByIsbn e existsByIsbn no cache de consultas")
+    public void queryCacheHitTest(){
+        repository.findByIsbn(book.getIsbn());
+        repository.findByIsbn(book.getIsbn());
+        repository.existsByIsbn(book.getIsbn());
+        repository.existsByIsbn(book.getIsbn());
+
+        assertThat(statistics.getQueryRegionStatistics(Book.ISBN_QUERY_REGION).getHitCount()).isEqualTo(2);
+        assertThat(statistics.getQueryRegionStatistics(Book.ISBN_QUERY_REGION).getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache de consultas quando o livro for removido")
+    public void queryCacheInvalidatedOnDeleteTest(){
+        assertThat(repository.existsByIsbn(book.getIsbn())).isTrue();
+
+        repository.delete(repository.findById(book.getId()).get());
+
+        assertThat(repository.existsByIsbn(book.getIsbn())).isFalse();
+        assertThat(repository.findByIsbn(book.getIsbn())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Não deve colocar no cache de segundo nivel os livros lidos pela exportação")
+    public void exportStreamsBypassCacheTest() throws Exception {
+        exportService.exportBooks(ExportFormat.NDJSON, new ByteArrayOutputStream());
+        exportService.exportLoans(ExportFormat.CSV, new ByteArrayOutputStream());
+
+        assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getPutCount()).isZero();
+    }
+}
@@ -3,12 +3,14 @@ package com.cursoback.libraryapi.model.repository;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.entity.Loan;
 import org.apache.tomcat.jni.Local;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
@@ -19,6 +21,7 @@ import java.util.List;
 
 import static com.cursoback.libraryapi.model.repository.BookRepositoryTest.createNewBook;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -78,6 +81,138 @@ public class LoanRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve carregar o livro junto com os emprestimos em uma unica consulta")
+    public void findByBookIsbnOrCustomerFetchesBookTest(){
+        createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+        entityManager.clear();
+
+        Page<Loan> result = repository.findByBookIsbnOrCustomer(
+                "123", "Fulano", PageRequest.of(0,10));
+
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(Hibernate.isInitialized(result.getContent().get(0).getBook())).isTrue();
+        assertThat(result.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve permitir dois emprestimos abertos para o mesmo livro")
+    public void openLoanUniqueByBookTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        Loan another = Loan.builder().book(loan.getBook()).customer("Cicrano").loanDate(LocalDate.now()).build();
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(another));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Deve permitir emprestar novamente um livro devolvido")
+    public void loanReturnedBookAgainTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        loan.setReturned(true);
+        repository.saveAndFlush(loan);
+
+        Loan another = Loan.builder().book(loan.getBook()).customer("Cicrano").loanDate(LocalDate.now()).build();
+        repository.saveAndFlush(another);
+
+        assertThat(another.getOpenBookId()).isEqualTo(loan.getBook().getId());
+        assertThat(loan.getOpenBookId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve mudar o resumo de versões dos empréstimos do livro ao devolver um empréstimo")
+    public void summarizeByBookTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+
+        VersionSummary before = repository.summarizeByBook(loan.getBook());
+        loan.setReturned(true);
+        repository.saveAndFlush(loan);
+        VersionSummary after = repository.summarizeByBook(loan.getBook());
+
+        assertThat(before.getCount()).isEqualTo(1);
+        assertThat(before.getMaxId()).isEqualTo(loan.getId());
+        assertThat(after.getVersionSum()).isEqualTo(before.getVersionSum() + 1);
+    }
+
+    @Test
+    @DisplayName("Deve mudar o resumo de versões da busca de empréstimos ao editar o livro emprestado")
+    public void summarizeByBookIsbnOrCustomerTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+
+        VersionSummary before = repository.summarizeByBookIsbnOrCustomer("123", "Fulano");
+        loan.getBook().setTitle("Outro titulo");
+        entityManager.flush();
+        VersionSummary after = repository.summarizeByBookIsbnOrCustomer("123", "Fulano");
+
+        assertThat(after.getVersionSum()).isEqualTo(before.getVersionSum());
+        assertThat(after.getBookVersionSum()).isEqualTo(before.getBookVersionSum() + 1);
+    }
+
+    @Test
+    @DisplayName("Deve devolver o emprestimo com update condicional, liberando o livro e mudando a versão")
+    public void markReturnedTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Long version = loan.getVersion();
+
+        int updated = repository.markReturned(loan.getId(), version);
+        Loan returned = repository.findById(loan.getId()).get();
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(returned.getReturned()).isTrue();
+        assertThat(returned.getOpenBookId()).isNull();
+        assertThat(returned.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Não deve devolver o emprestimo com uma versão desatualizada")
+    public void markReturnedStaleVersionTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Long version = loan.getVersion();
+        repository.markReturned(loan.getId(), version);
+
+        int updated = repository.markNotReturned(loan.getId(), version);
+        Loan current = repository.findById(loan.getId()).get();
+
+        assertThat(updated).isZero();
+        assertThat(current.getReturned()).isTrue();
+        assertThat(current.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Não deve reabrir um emprestimo se o livro tiver outro emprestimo aberto")
+    public void markNotReturnedWithOpenLoanTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        repository.markReturned(loan.getId(), loan.getVersion());
+        Loan another = Loan.builder().book(loan.getBook()).customer("Cicrano").loanDate(LocalDate.now()).build();
+        repository.saveAndFlush(another);
+
+        Throwable exception = catchThrowable(() -> repository.markNotReturned(loan.getId(), loan.getVersion() + 1));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Deve usar toString, equals e hashCode de um emprestimo destacado sem carregar o livro")
+    public void detachedLoanWithLazyBookTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+        entityManager.clear();
+        Loan found = repository.findById(loan.getId()).get();
+        Loan again = Loan.builder().id(found.getId()).customer(found.getCustomer())
+                .loanDate(found.getLoanDate()).returned(found.getReturned()).version(found.getVersion())
+                .openBookId(found.getOpenBookId()).build();
+        entityManager.clear();
+
+        assertThat(found.toString()).contains("Fulano");
+        assertThat(found).isEqualTo(again);
+        assertThat(found.hashCode()).isEqualTo(again.hashCode());
+        assertThat(Hibernate.isInitialized(found.getBook())).isFalse();
+    }
+
     public Loan createAndPersistLoan(LocalDate localDate){
         Book book = createNewBook("123");
         entityManager.persist(book);
@@ -0,0 +1,109 @@
+package com.cursoback.libraryapi.model.repository;
+
+import com.cursoback.libraryapi.config.DataSourceProxyConfig;
+import com.cursoback.libraryapi.config.SqlStatementRecorder;
+import com.cursoback.libraryapi.config.SqlStatistics;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.EmailOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Records the SQL the repositories generate for each hot query and checks
+ * which index its H2 plan uses. The isbn-or-customer loan filter is left
+ * out: H2 cannot use an index for an OR across loan and book columns.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(DataSourceProxyConfig.class)
+public class SchemaIndexTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        // unique values, so no cached query result can answer without SQL
+        book = bookRepository.saveAndFlush(Book.builder().title("Aventuras").author("Fulano")
+                .isbn("idx-" + System.nanoTime()).build());
+    }
+
+    @Test
+    @DisplayName("findByIsbn e findExistingIsbns devem usar o indice unico de isbn")
+    public void isbnLookupUsesIndexTest() throws Exception {
+        assertThat(plans(SqlStatementRecorder.record(() -> bookRepository.findByIsbn(book.getIsbn()))))
+                .allSatisfy(plan -> assertThat(plan).contains("UK_BOOK_ISBN"));
+        assertThat(plans(SqlStatementRecorder.record(() ->
+                bookRepository.findExistingIsbns(Arrays.asList(book.getIsbn(), "idx-outro")))))
+                .allSatisfy(plan -> assertThat(plan).contains("UK_BOOK_ISBN"));
+    }
+
+    /**
+     * H2 indexes foreign keys on its own and prefers that index here;
+     * idx_loan_book_returned covers databases that do not.
+     */
+    @Test
+    @DisplayName("findByBook deve usar o indice da chave estrangeira de livro")
+    public void loanByBookUsesIndexTest() throws Exception {
+        assertThat(plans(SqlStatementRecorder.record(() ->
+                loanRepository.findByBook(book, PageRequest.of(1, 10)))))
+                .allSatisfy(plan -> assertThat(plan).contains("FK_LOAN_BOOK_INDEX").doesNotContain("tableScan"));
+    }
+
+    @Test
+    @DisplayName("findLateLoansAfter deve percorrer a chave primaria em ordem a partir do cursor")
+    public void lateLoansUsesIndexTest() throws Exception {
+        assertThat(plans(SqlStatementRecorder.record(() ->
+                loanRepository.findLateLoansAfter(LocalDate.now().minusDays(3), 0L, PageRequest.of(0, 10)))))
+                .allSatisfy(plan -> assertThat(plan).contains("PRIMARY_KEY").contains("index sorted"));
+    }
+
+    @Test
+    @DisplayName("a fila de emails deve usar o indice de status")
+    public void outboxPollingUsesIndexTest() throws Exception {
+        assertThat(plans(SqlStatementRecorder.record(() ->
+                emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderById(
+                        EmailOutbox.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, 10)))))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_EMAIL_OUTBOX_STATUS_NEXT"));
+    }
+
+    /**
+     * H2 plans statements with unset parameters, so the recorded text is
+     * explained as it was sent.
+     */
+    private List<String> plans(SqlStatistics statistics) {
+        assertThat(statistics.getShapes()).isNotEmpty();
+        return statistics.getShapes().keySet().stream()
+                .map(sql -> jdbcTemplate.queryForObject("explain " + sql, String.class))
+                .collect(Collectors.toList());
+    }
+}
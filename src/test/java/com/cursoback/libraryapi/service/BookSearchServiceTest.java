@@ -0,0 +1,64 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.service.impl.BookSearchServiceImpl;
+import com.cursoback.libraryapi.service.search.BookSearchIndex;
+import com.cursoback.libraryapi.service.search.BookSuggestIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchServiceTest {
+
+    BookSearchService service;
+    BookSearchIndex index;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        index = new BookSearchIndex();
+        service = new BookSearchServiceImpl(index, new BookSuggestIndex(), repository);
+    }
+
+    @Test
+    @DisplayName("Deve carregar apenas os livros da pagina na ordem do ranking")
+    public void searchKeepsRankingOrderTest(){
+        index.put(1L, "Contos", "Aventuras Editora");
+        index.put(2L, "Aventuras", "Fulano");
+        index.put(3L, "Outras Aventuras", "Cicrano");
+        Book first = Book.builder().id(2L).title("Aventuras").build();
+        Book second = Book.builder().id(3L).title("Outras Aventuras").build();
+        when(repository.findAllById(Arrays.asList(2L, 3L))).thenReturn(Arrays.asList(second, first));
+
+        Page<Book> result = service.search("aventuras", PageRequest.of(0, 2));
+
+        assertThat(result.getContent()).containsExactly(first, second);
+        assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Não deve consultar a base quando a busca não tiver resultados")
+    public void searchWithoutHitsTest(){
+        Page<Book> result = service.search("inexistente", PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).isEmpty();
+        verify(repository, never()).findAllById(Mockito.anyIterable());
+    }
+}
@@ -0,0 +1,103 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.config.BookCacheEndpoint;
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Books are cached only by the Hibernate second level cache, which builds a
+ * new instance for every lookup, so callers never share a mutable book.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    BookCacheEndpoint endpoint;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        book = repository.save(Book.builder().title("Aventuras").author("Fulano")
+                .isbn("cache-" + System.nanoTime()).build());
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        repository.findById(book.getId()).ifPresent(repository::delete);
+    }
+
+    @Test
+    @DisplayName("Deve entregar uma instância nova do livro em cada busca por id")
+    public void getByIdReturnsNewInstanceTest(){
+        Book first = service.getById(book.getId()).get();
+        Book second = service.getById(book.getId()).get();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTitle()).isEqualTo("Aventuras");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve alterar o livro em cache quando a atualização falhar")
+    public void failedUpdateDoesNotLeakIntoCacheTest(){
+        Book stale = service.getById(book.getId()).get();
+        Book current = service.getById(book.getId()).get();
+        current.setTitle("Outras Aventuras");
+        service.update(current);
+
+        stale.setTitle("Aventuras Perdidas");
+        Throwable exception = catchThrowable(() -> service.update(stale));
+
+        assertThat(exception).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(service.getById(book.getId()).get().getTitle()).isEqualTo("Outras Aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve expor acertos, falhas, remoções e tamanho do cache de livros")
+    public void endpointStatsTest(){
+        service.getById(book.getId());
+        service.getById(book.getId());
+
+        Map<String, Object> stats = endpoint.stats().get(Book.CACHE_REGION);
+
+        assertThat(stats).containsEntry("hits", 1L).containsEntry("misses", 1L)
+                .containsEntry("hitRatio", 0.5).containsEntry("size", 1L);
+        assertThat((Long) stats.get("evictions")).isGreaterThanOrEqualTo(0L);
+        assertThat(endpoint.stats()).containsKey(Book.ISBN_QUERY_REGION);
+    }
+}
@@ -1,24 +1,31 @@
 package com.cursoback.libraryapi.service;
 
+import com.cursoback.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursoback.libraryapi.exception.BusinessException;
 import com.cursoback.libraryapi.model.entity.Book;
 import com.cursoback.libraryapi.model.repository.BookRepository;
 import com.cursoback.libraryapi.service.impl.BookServiceImpl;
+import com.cursoback.libraryapi.service.search.BookChangedEvent;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,10 +38,12 @@ public class BookServiceTest {
     BookService service;
     @MockBean
     BookRepository repository;
+    ApplicationEventPublisher eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
 
     @BeforeEach
     public void setUp(){
-        this.service = new BookServiceImpl(repository);
+        this.service = new BookServiceImpl(repository, eventPublisher,
+                Mockito.mock(PlatformTransactionManager.class));
     }
 
     @Test
@@ -42,8 +51,7 @@ public class BookServiceTest {
     public void saveBookTest(){
         //cenario
         Book book = createValidBook();
-        when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
-        when(repository.save(book))
+        when(repository.saveAndFlush(book))
                 .thenReturn(Book.builder().id(1L)
                 .isbn("123")
                 .title("As aventuras")
@@ -57,6 +65,7 @@ public class BookServiceTest {
         assertThat(savedBook.getIsbn()).isEqualTo("123");
         assertThat(savedBook.getTitle()).isEqualTo("As aventuras");
         assertThat(savedBook.getAuthor()).isEqualTo("Fulano");
+        verify(eventPublisher).publishEvent(Mockito.any(BookChangedEvent.class));
 
 
     }
@@ -71,7 +80,9 @@ public class BookServiceTest {
     public void shouldNotSaveABookWithDuplicatedISBN(){
         //cenario
         Book book = createValidBook();
-        when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+        when(repository.saveAndFlush(book)).thenThrow(new DataIntegrityViolationException("duplicated",
+                new ConstraintViolationException("duplicated", null,
+                        "PUBLIC.UK_BOOK_ISBN ON PUBLIC.BOOK(ISBN)")));
 
         //execucao
         Throwable exception = Assertions.catchThrowable(() -> service.save(book));
@@ -80,7 +91,20 @@ public class BookServiceTest {
         assertThat(exception).isInstanceOf(BusinessException.class)
         .hasMessage("Isbn já cadastrado");
 
-        verify(repository, Mockito.never()).save(book);
+        verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
+    }
+
+    @Test
+    @DisplayName("Deve propagar violações de integridade que não sejam de isbn")
+    public void shouldPropagateOtherIntegrityViolations(){
+        Book book = createValidBook();
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", null, null));
+        when(repository.saveAndFlush(book)).thenThrow(violation);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.save(book));
+
+        assertThat(exception).isSameAs(violation);
 
 
     }
@@ -129,6 +153,8 @@ public class BookServiceTest {
 
         //verificacao
         verify(repository, times(1)).delete(book);
+        verify(eventPublisher).publishEvent(Mockito.argThat(
+                (BookChangedEvent event) -> event.isRemoved() && event.getId().equals(id)));
     }
 
     @Test
@@ -221,4 +247,58 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve salvar livros em lote informando o resultado de cada um")
+    public void saveAllBooksTest(){
+        Book valid = createValidBook();
+        Book existing = Book.builder().isbn("456").author("Fulano").title("Outro").build();
+        Book repeated = createValidBook();
+        Book invalid = Book.builder().isbn("789").build();
+
+        when(repository.findExistingIsbns(Mockito.anyCollection()))
+                .thenReturn(Collections.singleton("456"));
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(1L));
+            return books;
+        });
+
+        List<BookBatchResultDTO> results = service.saveAll(Arrays.asList(valid, existing, repeated, invalid));
+
+        assertThat(results).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.CREATED,
+                BookBatchResultDTO.Status.DUPLICATED,
+                BookBatchResultDTO.Status.DUPLICATED,
+                BookBatchResultDTO.Status.INVALID);
+        assertThat(results.get(0).getId()).isEqualTo(1L);
+        verify(repository, times(1)).findExistingIsbns(Mockito.anyCollection());
+        verify(repository, times(1)).saveAll(Collections.singletonList(valid));
+    }
+
+    @Test
+    @DisplayName("Deve salvar o lote livro a livro quando outro pedido cadastrar o mesmo isbn")
+    public void saveAllFallsBackToRowsOnIsbnConflictTest(){
+        Book valid = createValidBook();
+        Book taken = Book.builder().isbn("456").author("Fulano").title("Outro").build();
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("duplicated",
+                new ConstraintViolationException("duplicated", null, "UK_BOOK_ISBN"));
+
+        when(repository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Collections.emptySet());
+        doThrow(violation).when(repository).flush();
+        when(repository.saveAndFlush(valid)).thenAnswer(invocation -> {
+            valid.setId(1L);
+            return valid;
+        });
+        when(repository.saveAndFlush(taken)).thenThrow(violation);
+
+        List<BookBatchResultDTO> results = service.saveAll(Arrays.asList(valid, taken));
+
+        assertThat(results).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.CREATED,
+                BookBatchResultDTO.Status.DUPLICATED);
+        assertThat(results.get(0).getId()).isEqualTo(1L);
+        assertThat(results.get(1).getId()).isNull();
+        assertThat(results.get(1).getError()).isEqualTo("Isbn já cadastrado");
+        verify(eventPublisher, times(1)).publishEvent(Mockito.any(BookChangedEvent.class));
+    }
 }
@@ -0,0 +1,187 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.EmailOutbox;
+import com.cursoback.libraryapi.model.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "application.mail.outbox.poll-interval=3600000"
+})
+public class EmailOutboxDispatcherTest {
+
+    static GreenMail smtpServer = new GreenMail(new ServerSetup(3025, null, ServerSetup.PROTOCOL_SMTP));
+
+    @Autowired
+    EmailService emailService;
+
+    @Autowired
+    EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    EmailOutboxRepository repository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @BeforeAll
+    public static void startSmtpServer(){
+        smtpServer.start();
+    }
+
+    @AfterAll
+    public static void stopSmtpServer(){
+        smtpServer.stop();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository.deleteAll();
+        smtpServer.purgeEmailFromAllMailboxes();
+    }
+
+    @Test
+    @DisplayName("Deve apenas enfileirar o email sem acessar o servidor smtp")
+    public void sendMailsOnlyQueuesTest(){
+        emailService.sendMails("atrasado", Arrays.asList("fulano@email.com", "cicrano@email.com"));
+
+        assertThat(smtpServer.getReceivedMessages()).isEmpty();
+        List<EmailOutbox> queued = repository.findAll();
+        assertThat(queued).hasSize(1);
+        assertThat(queued.get(0).getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+    }
+
+    @Test
+    @DisplayName("Deve enviar os emails pendentes pelo servidor smtp")
+    public void dispatchPendingMailsTest(){
+        emailService.sendMails("atrasado", Arrays.asList("fulano@email.com", "cicrano@email.com"));
+
+        dispatcher.dispatch();
+
+        EmailOutbox mail = awaitAttempt();
+        MimeMessage[] received = smtpServer.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        assertThat(mail.getStatus()).isEqualTo(EmailOutbox.Status.SENT);
+    }
+
+    @Test
+    @DisplayName("Deve medir o tempo de envio ao servidor smtp")
+    public void sendTimerTest(){
+        Timer timer = registry.timer("mail.send", "exception", "none");
+        long before = timer.count();
+        emailService.sendMails("atrasado", Collections.singletonList("fulano@email.com"));
+
+        dispatcher.dispatch();
+
+        awaitAttempt();
+        assertThat(timer.count()).isEqualTo(before + 1);
+        assertThat(timer.totalTime(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    @Test
+    @DisplayName("Não deve reenviar um email que ainda está sendo enviado")
+    public void dispatchSkipsLeasedMailTest(){
+        emailService.sendMails("atrasado", Collections.singletonList("fulano@email.com"));
+
+        dispatcher.dispatch();
+        dispatcher.dispatch();
+
+        awaitAttempt();
+        assertThat(smtpServer.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Deve reagendar o envio quando o servidor smtp recusar o email")
+    public void retryFailedMailTest(){
+        emailService.sendMails("atrasado", Collections.singletonList("endereco invalido"));
+
+        dispatcher.dispatch();
+        awaitAttempt();
+        dispatcher.dispatch();
+
+        EmailOutbox mail = awaitAttempt();
+        assertThat(mail.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getNextAttemptAt()).isAfter(mail.getCreatedAt());
+        assertThat(mail.getLastError()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve reagendar o envio quando o email falhar com qualquer erro")
+    public void retryUnexpectedErrorTest(){
+        repository.save(EmailOutbox.builder().subject("atrasado").message("atrasado")
+                .status(EmailOutbox.Status.PENDING).attempts(0)
+                .nextAttemptAt(LocalDateTime.now()).createdAt(LocalDateTime.now()).build());
+
+        dispatcher.dispatch();
+
+        EmailOutbox mail = awaitAttempt();
+        assertThat(mail.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getLastError()).startsWith(NullPointerException.class.getName());
+    }
+
+    @Test
+    @DisplayName("Deve reservar um email pendente para apenas um envio")
+    public void claimOnlyOnceTest(){
+        emailService.sendMails("atrasado", Collections.singletonList("fulano@email.com"));
+        EmailOutbox mail = repository.findAll().get(0);
+        LocalDateTime now = LocalDateTime.now();
+
+        int first = repository.claim(mail.getId(), mail.getVersion(), now, now.plusMinutes(5));
+        int second = repository.claim(mail.getId(), mail.getVersion(), now, now.plusMinutes(5));
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+    }
+
+    /**
+     * Sends run on the outbox executor, so wait until the single queued mail
+     * was either sent or had its attempt recorded.
+     */
+    private EmailOutbox awaitAttempt() {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            EmailOutbox mail = repository.findAll().get(0);
+            if (mail.getStatus() != EmailOutbox.Status.PENDING || mail.getAttempts() > 0
+                    || System.currentTimeMillis() > deadline) {
+                return mail;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return mail;
+            }
+        }
+    }
+}
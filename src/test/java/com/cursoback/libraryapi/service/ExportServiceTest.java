@@ -0,0 +1,89 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import com.cursoback.libraryapi.service.impl.ExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ExportServiceTest {
+
+    ExportService service;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    Session session;
+
+    @BeforeEach
+    public void setUp(){
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        this.service = new ExportServiceImpl(bookRepository, loanRepository, entityManager, new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Deve exportar os livros em csv escapando os campos")
+    public void exportBooksCsvTest() throws Exception {
+        Book book = Book.builder().id(1L).title("Aventuras, volume \"1\"").author("Fulano").isbn("123").build();
+        when(bookRepository.streamAll()).thenReturn(Stream.of(book));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportBooks(ExportFormat.CSV, out);
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "id,title,author,isbn\n" +
+                "1,\"Aventuras, volume \"\"1\"\"\",Fulano,123\n");
+        verify(entityManager).detach(book);
+        verify(session).setCacheMode(CacheMode.IGNORE);
+    }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos em ndjson")
+    public void exportLoansNdjsonTest() throws Exception {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        Loan first = Loan.builder().id(1L).customer("Fulano").customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2020, 1, 1)).book(book).build();
+        Loan second = Loan.builder().id(2L).customer("Cicrano").loanDate(LocalDate.of(2020, 1, 2))
+                .returned(true).book(book).build();
+        when(loanRepository.streamAllWithBook()).thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportLoans(ExportFormat.NDJSON, out);
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"customer\":\"Fulano\",\"customerEmail\":\"fulano@email.com\"," +
+                "\"loanDate\":\"2020-01-01\",\"returned\":null,\"bookId\":1,\"isbn\":\"123\"}\n" +
+                "{\"id\":2,\"customer\":\"Cicrano\",\"customerEmail\":null," +
+                "\"loanDate\":\"2020-01-02\",\"returned\":true,\"bookId\":1,\"isbn\":\"123\"}\n");
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+}
@@ -11,8 +11,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -61,9 +65,7 @@ public class LoanServiceTest {
                         .customer(customer)
                         .book(book).build();
 
-        when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
-
-        when(repository.save(savingloan)).thenReturn(savedLoan);
+        when(repository.saveAndFlush(savingloan)).thenReturn(savedLoan);
 
         Loan loan = service.save(savingloan);
 
@@ -86,8 +88,9 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        when(repository.
-                existsByBookAndNotReturned(book)).thenReturn(true);
+        when(repository.saveAndFlush(savingloan)).thenThrow(new DataIntegrityViolationException("duplicated",
+                new ConstraintViolationException("duplicated", null,
+                        "PUBLIC.UK_LOAN_OPEN_BOOK ON PUBLIC.LOAN(OPEN_BOOK_ID)")));
 
 
         Throwable exception = catchThrowable( () -> service.save(savingloan));
@@ -96,7 +99,7 @@ public class LoanServiceTest {
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("Book already loaned");
 
-        verify(repository, never()).save(savingloan);
+        verify(repository, never()).existsByBookAndNotReturned(book);
     }
 
     @Test
@@ -125,19 +128,120 @@ public class LoanServiceTest {
     }
 
     @Test
-    @DisplayName("Deve atualizar o emprestimo")
+    @DisplayName("Deve devolver o emprestimo com update condicional na versão")
     public void updateLoanTest(){
         Loan loan = createLoan();
         loan.setId(1L);
+        loan.setVersion(0L);
+        loan.setReturned(true);
+
+        when(repository.markReturned(1L, 0L)).thenReturn(1);
+
+        Loan updatedLoan = service.update(loan);
+
+        assertThat(updatedLoan.getReturned()).isTrue();
+        assertThat(updatedLoan.getVersion()).isEqualTo(1L);
+        assertThat(updatedLoan.getOpenBookId()).isNull();
+        verify(repository).markReturned(1L, 0L);
+        verify(repository, never()).saveAndFlush(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve repetir a devolução com a versão atual quando houver conflito")
+    public void updateLoanRetriesConflictTest(){
+        Loan loan = createLoan();
+        loan.setId(1L);
+        loan.setVersion(0L);
         loan.setReturned(true);
 
-        when(repository.save(loan)).thenReturn(loan);
+        Loan current = createLoan();
+        current.setId(1L);
+        current.setVersion(3L);
+        current.setReturned(false);
+
+        when(repository.markReturned(1L, 0L)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+        when(repository.findById(1L)).thenReturn(Optional.of(current));
+        when(repository.markReturned(1L, 3L)).thenReturn(1);
 
         Loan updatedLoan = service.update(loan);
 
         assertThat(updatedLoan.getReturned()).isTrue();
+        assertThat(updatedLoan.getVersion()).isEqualTo(4L);
+        verify(repository).markReturned(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("Deve desistir da devolução após o limite de conflitos")
+    public void updateLoanGivesUpAfterMaxAttemptsTest(){
+        Loan loan = createLoan();
+        loan.setId(1L);
+        loan.setVersion(0L);
+        loan.setReturned(true);
+
+        when(repository.markReturned(Mockito.eq(1L), Mockito.anyLong())).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            Loan current = createLoan();
+            current.setId(1L);
+            current.setVersion(0L);
+            return Optional.of(current);
+        });
+
+        Throwable exception = catchThrowable(() -> service.update(loan));
+
+        assertThat(exception).isInstanceOf(OptimisticLockingFailureException.class);
+        verify(repository, times(5)).markReturned(Mockito.eq(1L), Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Não deve repetir a devolução condicional quando a versão mudou")
+    public void updateIfUnchangedConflictTest(){
+        Loan loan = createLoan();
+        loan.setId(1L);
+        loan.setVersion(0L);
+        loan.setReturned(true);
+
+        when(repository.markReturned(1L, 0L)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+
+        Throwable exception = catchThrowable(() -> service.updateIfUnchanged(loan));
+
+        assertThat(exception).isInstanceOf(OptimisticLockingFailureException.class);
+        verify(repository, Mockito.times(1)).markReturned(Mockito.anyLong(), Mockito.anyLong());
+        verify(repository, never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio ao reabrir emprestimo de livro já emprestado")
+    public void reopenLoanOfLoanedBookTest(){
+        Loan loan = createLoan();
+        loan.setId(1L);
+        loan.setVersion(0L);
+        loan.setReturned(false);
+
+        when(repository.markNotReturned(1L, 0L)).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", null, "UK_LOAN_OPEN_BOOK")));
+
+        Throwable exception = catchThrowable(() -> service.update(loan));
+
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Book already loaned");
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao devolver emprestimo inexistente")
+    public void updateMissingLoanTest(){
+        Loan loan = createLoan();
+        loan.setId(1L);
+        loan.setVersion(0L);
+        loan.setReturned(true);
+
+        when(repository.markReturned(1L, 0L)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(false);
+
+        Throwable exception = catchThrowable(() -> service.update(loan));
 
-        verify(repository).save(loan);
+        assertThat(exception).isInstanceOf(EmptyResultDataAccessException.class);
     }
 
     @Test
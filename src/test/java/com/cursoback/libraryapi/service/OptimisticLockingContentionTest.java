@@ -0,0 +1,193 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import com.cursoback.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers one book and one loan from 8 to 64 threads and reports throughput
+ * and conflict rate. Book updates surface conflicts to the caller; loan
+ * returns are versioned conditional updates with a bounded retry, so every
+ * return that succeeds moves the version exactly once and none is lost.
+ * <p>
+ * Tagged {@code benchmark}: runs with {@code mvn -P benchmark verify}, not in
+ * the default test run.
+ */
+@Tag("benchmark")
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@Slf4j
+public class OptimisticLockingContentionTest {
+
+    private static final int OPERATIONS_PER_THREAD = 20;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    Book book;
+    Loan loan;
+
+    @BeforeEach
+    public void setUp(){
+        book = bookRepository.save(Book.builder().title("Aventuras").author("Fulano")
+                .isbn("contention-" + System.nanoTime()).build());
+        loan = loanRepository.save(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now()).build());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteById(loan.getId());
+        bookRepository.deleteById(book.getId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 16, 32, 64})
+    @DisplayName("Atualizações concorrentes de livro devem falhar apenas com conflito de versão")
+    public void concurrentBookUpdatesTest(int threads) throws Exception {
+        long initialVersion = bookRepository.findById(book.getId()).get().getVersion();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        Result result = run(threads, operation -> {
+            Book current = bookRepository.findById(book.getId()).get();
+            current.setTitle("Aventuras " + operation);
+            try {
+                bookService.update(current);
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            }
+        });
+
+        int total = threads * OPERATIONS_PER_THREAD;
+        long finalVersion = bookRepository.findById(book.getId()).get().getVersion();
+        report("book update", threads, result, conflicts.get());
+
+        assertThat(result.failures).isZero();
+        assertThat(finalVersion - initialVersion).isEqualTo(total - conflicts.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 16, 32, 64})
+    @DisplayName("Devoluções concorrentes não devem perder atualizações")
+    public void concurrentLoanReturnsTest(int threads) throws Exception {
+        long initialVersion = loanRepository.findById(loan.getId()).get().getVersion();
+        AtomicInteger conflicts = new AtomicInteger();
+        Map<Long, Boolean> returnedByVersion = new ConcurrentHashMap<>();
+        AtomicInteger duplicatedVersions = new AtomicInteger();
+
+        Result result = run(threads, operation -> {
+            Loan current = loanRepository.findById(loan.getId()).get();
+            current.setReturned(operation % 2 == 0);
+            try {
+                Loan updated = loanService.update(current);
+                if (returnedByVersion.putIfAbsent(updated.getVersion(), updated.getReturned()) != null) {
+                    duplicatedVersions.incrementAndGet();
+                }
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            }
+        });
+
+        int total = threads * OPERATIONS_PER_THREAD;
+        Loan last = loanRepository.findById(loan.getId()).get();
+        report("loan return", threads, result, conflicts.get());
+
+        assertThat(result.failures).isZero();
+        assertThat(duplicatedVersions.get()).isZero();
+        assertThat(last.getVersion() - initialVersion).isEqualTo(total - conflicts.get());
+        assertThat(last.getReturned()).isEqualTo(returnedByVersion.get(last.getVersion()));
+        assertThat(last.getOpenBookId()).isEqualTo(last.getReturned() ? null : book.getId());
+    }
+
+    private Result run(int threads, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        operation.execute(thread * OPERATIONS_PER_THREAD + i);
+                    } catch (RuntimeException e) {
+                        log.error("unexpected failure", e);
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return new Result(elapsed, failures.get());
+    }
+
+    private static void report(String name, int threads, Result result, int conflicts) {
+        int total = threads * OPERATIONS_PER_THREAD;
+        double seconds = result.elapsedNanos / 1_000_000_000.0;
+        log.info("{} threads={} ops={} throughput={} ops/s conflicts={} conflictRate={}%",
+                name, threads, total,
+                String.format("%.1f", total / seconds), conflicts,
+                String.format("%.1f", conflicts * 100.0 / total));
+    }
+
+    private interface Operation {
+        void execute(int operation);
+    }
+
+    private static class Result {
+        final long elapsedNanos;
+        final int failures;
+
+        Result(long elapsedNanos, int failures) {
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cursoback.libraryapi.service;
+
+import com.cursoback.libraryapi.model.entity.Loan;
+import com.cursoback.libraryapi.model.entity.NotificationCheckpoint;
+import com.cursoback.libraryapi.model.entity.NotifiedRecipient;
+import com.cursoback.libraryapi.model.repository.NotificationCheckpointRepository;
+import com.cursoback.libraryapi.model.repository.NotifiedRecipientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+
+    ScheduleService service;
+    SimpleMeterRegistry meterRegistry;
+    Set<String> notified;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    NotificationCheckpointRepository checkpointRepository;
+
+    @MockBean
+    NotifiedRecipientRepository recipientRepository;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ScheduleService(loanService, emailService, checkpointRepository, recipientRepository,
+                Runnable::run, meterRegistry);
+        ReflectionTestUtils.setField(service, "message", "atrasado");
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+        when(checkpointRepository.save(Mockito.any(NotificationCheckpoint.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        notified = new HashSet<>();
+        when(recipientRepository.findNotified(Mockito.eq(ScheduleService.JOB_LATE_LOANS), Mockito.eq(LocalDate.now()),
+                Mockito.anyCollection())).thenAnswer(invocation -> {
+                    Set<String> found = new HashSet<>(invocation.<Collection<String>>getArgument(2));
+                    found.retainAll(notified);
+                    return found;
+                });
+        when(recipientRepository.saveAll(Mockito.anyIterable())).thenAnswer(invocation -> {
+            Iterable<NotifiedRecipient> recipients = invocation.getArgument(0);
+            recipients.forEach(recipient -> notified.add(recipient.getEmail()));
+            return recipients;
+        });
+    }
+
+    @Test
+    @DisplayName("Deve enviar um email por destinatario percorrendo os emprestimos em blocos")
+    public void sendMailToLateLoansInChunksTest(){
+        when(checkpointRepository.findById(Mockito.anyString())).thenReturn(Optional.empty());
+        when(loanService.getLateLoansAfter(0L, 2))
+                .thenReturn(Arrays.asList(loan(1L, "fulano@email.com"), loan(2L, "cicrano@email.com")));
+        when(loanService.getLateLoansAfter(2L, 2))
+                .thenReturn(Collections.singletonList(loan(3L, "FULANO@email.com")));
+
+        service.sendMailToLateLoans();
+
+        verify(emailService).sendMails("atrasado", Collections.singletonList("fulano@email.com"));
+        verify(emailService).sendMails("atrasado", Collections.singletonList("cicrano@email.com"));
+        verify(emailService, times(2)).sendMails(Mockito.anyString(), Mockito.anyList());
+        verify(recipientRepository).deleteBefore(ScheduleService.JOB_LATE_LOANS, LocalDate.now());
+        assertThat(meterRegistry.counter("lateloans.loans.processed").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("lateloans.recipients.notified").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve retomar o envio a partir do ultimo emprestimo registrado no dia")
+    public void resumeFromCheckpointTest(){
+        NotificationCheckpoint checkpoint = NotificationCheckpoint.builder()
+                .job(ScheduleService.JOB_LATE_LOANS).runDate(LocalDate.now()).lastLoanId(2L).completed(false).build();
+        when(checkpointRepository.findById(ScheduleService.JOB_LATE_LOANS)).thenReturn(Optional.of(checkpoint));
+        when(loanService.getLateLoansAfter(2L, 2))
+                .thenReturn(Collections.singletonList(loan(3L, "beltrano@email.com")));
+
+        service.sendMailToLateLoans();
+
+        verify(loanService, never()).getLateLoansAfter(0L, 2);
+        verify(emailService).sendMails("atrasado", Collections.singletonList("beltrano@email.com"));
+        assertThat(checkpoint.getLastLoanId()).isEqualTo(3L);
+        assertThat(checkpoint.getCompleted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Não deve reenviar aos destinatarios ja notificados antes da retomada")
+    public void resumeSkipsNotifiedRecipientsTest(){
+        NotificationCheckpoint checkpoint = NotificationCheckpoint.builder()
+                .job(ScheduleService.JOB_LATE_LOANS).runDate(LocalDate.now()).lastLoanId(2L).completed(false).build();
+        when(checkpointRepository.findById(ScheduleService.JOB_LATE_LOANS)).thenReturn(Optional.of(checkpoint));
+        when(loanService.getLateLoansAfter(2L, 2))
+                .thenReturn(Arrays.asList(loan(3L, "FULANO@email.com"), loan(4L, "beltrano@email.com")));
+        notified.add("fulano@email.com");
+
+        service.sendMailToLateLoans();
+
+        verify(emailService).sendMails("atrasado", Collections.singletonList("beltrano@email.com"));
+        verify(emailService, times(1)).sendMails(Mockito.anyString(), Mockito.anyList());
+        assertThat(notified).containsExactlyInAnyOrder("fulano@email.com", "beltrano@email.com");
+        assertThat(meterRegistry.counter("lateloans.recipients.notified").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve reenviar quando o envio do dia ja foi concluido")
+    public void skipCompletedRunTest(){
+        NotificationCheckpoint checkpoint = NotificationCheckpoint.builder()
+                .job(ScheduleService.JOB_LATE_LOANS).runDate(LocalDate.now()).lastLoanId(3L).completed(true).build();
+        when(checkpointRepository.findById(ScheduleService.JOB_LATE_LOANS)).thenReturn(Optional.of(checkpoint));
+
+        service.sendMailToLateLoans();
+
+        verify(loanService, never()).getLateLoansAfter(Mockito.anyLong(), Mockito.anyInt());
+        verify(emailService, never()).sendMails(Mockito.anyString(), Mockito.anyList());
+    }
+
+    private static Loan loan(Long id, String email) {
+        return Loan.builder().id(id).customer("Fulano").customerEmail(email).build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.cursoback.libraryapi.service.search;
+
+import com.cursoback.libraryapi.model.entity.Book;
+import com.cursoback.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class BookIndexMaintainerTest {
+
+    BookRepository repository = Mockito.mock(BookRepository.class);
+    BookSearchIndex index;
+    BookIndexMaintainer maintainer;
+
+    @BeforeEach
+    public void setUp(){
+        index = new BookSearchIndex();
+        maintainer = new BookIndexMaintainer(Collections.singletonList(index), repository,
+                Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Deve carregar o indice a partir da tabela de livros")
+    public void rebuildTest(){
+        when(repository.streamIndexEntries()).thenReturn(Stream.of(
+                entry(1L, "As Aventuras de Sherlock Holmes", "Arthur Conan Doyle"),
+                entry(2L, "Dom Casmurro", "Machado de Assis")));
+
+        maintainer.rebuild();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("casmurro", 0, 10).getIds()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Não deve perder alterações feitas durante a reconstrução do indice")
+    public void changesDuringRebuildTest(){
+        Book renamed = Book.builder().id(1L).title("O Cão dos Baskerville").author("Arthur Conan Doyle").build();
+        Book removed = Book.builder().id(2L).title("Dom Casmurro").author("Machado de Assis").build();
+        when(repository.streamIndexEntries()).thenReturn(Stream.of(
+                entry(1L, "As Aventuras de Sherlock Holmes", "Arthur Conan Doyle"),
+                entry(2L, "Dom Casmurro", "Machado de Assis"))
+                .peek(entry -> {
+                    if (entry.getId() == 1L) {
+                        maintainer.onBookChanged(BookChangedEvent.saved(renamed));
+                        maintainer.onBookChanged(BookChangedEvent.removed(removed));
+                    }
+                }));
+
+        maintainer.rebuild();
+
+        assertThat(index.search("baskerville", 0, 10).getIds()).containsExactly(1L);
+        assertThat(index.search("aventuras", 0, 10).getTotal()).isZero();
+        assertThat(index.search("casmurro", 0, 10).getTotal()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve aplicar alterações diretamente fora da reconstrução")
+    public void changeAfterRebuildTest(){
+        when(repository.streamIndexEntries()).thenReturn(Stream.empty());
+        maintainer.rebuild();
+
+        maintainer.onBookChanged(BookChangedEvent.saved(
+                Book.builder().id(3L).title("Aventuras na Ilha").author("Fulano").build()));
+
+        assertThat(index.search("ilha", 0, 10).getIds()).containsExactly(3L);
+    }
+
+    private static BookRepository.IndexEntry entry(Long id, String title, String author) {
+        return new BookRepository.IndexEntry() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getAuthor() {
+                return author;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.cursoback.libraryapi.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp(){
+        index = new BookSearchIndex();
+        index.put(1L, "As Aventuras de Sherlock Holmes", "Arthur Conan Doyle");
+        index.put(2L, "O Cão dos Baskerville", "Arthur Conan Doyle");
+        index.put(3L, "Aventuras na Ilha", "Fulano");
+        index.put(4L, "Memórias Póstumas de Brás Cubas", "Machado de Assis");
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livros ignorando caixa e acentos")
+    public void foldCaseAndAccentsTest(){
+        SearchResult result = index.search("MEMORIAS postumas", 0, 10);
+
+        assertThat(result.getIds()).containsExactly(4L);
+        assertThat(result.getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve exigir todos os termos da consulta")
+    public void allTermsRequiredTest(){
+        assertThat(index.search("aventuras doyle", 0, 10).getIds()).containsExactly(1L);
+        assertThat(index.search("aventuras inexistente", 0, 10).getTotal()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve ranquear ocorrencias no titulo acima do autor")
+    public void rankTitleAboveAuthorTest(){
+        index.put(5L, "Contos", "Aventuras Editora");
+
+        SearchResult result = index.search("aventuras", 0, 10);
+
+        assertThat(result.getIds()).containsExactly(1L, 3L, 5L);
+    }
+
+    @Test
+    @DisplayName("Deve paginar os resultados ranqueados")
+    public void pagingTest(){
+        SearchResult result = index.search("arthur", 1, 1);
+
+        assertThat(result.getIds()).containsExactly(2L);
+        assertThat(result.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizações e remoções")
+    public void incrementalUpdateTest(){
+        index.put(3L, "Viagem ao Centro da Terra", "Julio Verne");
+        index.remove(2L);
+
+        assertThat(index.search("aventuras", 0, 10).getIds()).containsExactly(1L);
+        assertThat(index.search("baskerville", 0, 10).getTotal()).isZero();
+        assertThat(index.search("verne", 0, 10).getIds()).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio para consulta sem termos")
+    public void emptyQueryTest(){
+        assertThat(index.search(" - ", 0, 10).getTotal()).isZero();
+    }
+}
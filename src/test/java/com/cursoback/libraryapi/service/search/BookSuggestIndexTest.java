@@ -0,0 +1,71 @@
+package com.cursoback.libraryapi.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSuggestIndexTest {
+
+    BookSuggestIndex index;
+
+    @BeforeEach
+    public void setUp(){
+        index = new BookSuggestIndex();
+        index.put(1L, "As Aventuras de Sherlock Holmes", "Arthur Conan Doyle");
+        index.put(2L, "O Cão dos Baskerville", "Arthur Conan Doyle");
+        index.put(3L, "Ação e Reação", "Fulano");
+    }
+
+    @Test
+    @DisplayName("Deve sugerir pelo inicio de qualquer palavra ignorando caixa e acentos")
+    public void suggestByWordPrefixTest(){
+        assertThat(texts(index.suggest("HOLM", 10))).containsExactly("As Aventuras de Sherlock Holmes");
+        assertThat(texts(index.suggest("acao", 10))).containsExactly("Ação e Reação");
+    }
+
+    @Test
+    @DisplayName("Deve sugerir autores uma unica vez")
+    public void suggestDistinctAuthorsTest(){
+        List<Suggestion> suggestions = index.suggest("arthur", 10);
+
+        assertThat(texts(suggestions)).containsExactly("Arthur Conan Doyle");
+        assertThat(suggestions.get(0).getField()).isEqualTo(Suggestion.Field.AUTHOR);
+    }
+
+    @Test
+    @DisplayName("Deve limitar a quantidade de sugestões")
+    public void suggestLimitTest(){
+        assertThat(index.suggest("a", 2)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Deve sugerir primeiro as frases com mais livros, desempatando em ordem alfabetica")
+    public void suggestRankedByBooksTest(){
+        assertThat(texts(index.suggest("a", 1))).containsExactly("Arthur Conan Doyle");
+        assertThat(texts(index.suggest("a", 10)))
+                .containsExactly("Arthur Conan Doyle", "Ação e Reação", "As Aventuras de Sherlock Holmes");
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizações e remoções")
+    public void incrementalUpdateTest(){
+        index.remove(1L);
+        assertThat(texts(index.suggest("arthur", 10))).containsExactly("Arthur Conan Doyle");
+
+        index.remove(2L);
+        assertThat(index.suggest("arthur", 10)).isEmpty();
+
+        index.put(3L, "Reação em Cadeia", "Fulano");
+        assertThat(index.suggest("acao", 10)).isEmpty();
+        assertThat(texts(index.suggest("cad", 10))).containsExactly("Reação em Cadeia");
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+}